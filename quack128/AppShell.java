@@ -0,0 +1,129 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.EnumMap;
+import java.util.Map;
+
+// The application's only window after sign-in: one card per screen above a shared navigation bar.
+// Screens are built on their first visit and kept alive, so switching tabs keeps their scroll
+// position and only asks them to load what changed while they were hidden.
+public class AppShell extends JFrame {
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 500;
+    private static final int NAV_ICON_SIZE = 20;
+
+    public enum Destination {
+        HOME("img/icons/home.png"),
+        EXPLORE("img/icons/search.png"),
+        UPLOAD("img/icons/add.png"),
+        NOTIFICATIONS("img/icons/heart.png"),
+        PROFILE("img/icons/profile.png");
+
+        private final String iconPath;
+
+        Destination(String iconPath) {
+            this.iconPath = iconPath;
+        }
+    }
+
+    // A screen hosted by the shell; implementations are JComponents
+    public interface Screen {
+        String getTitle();
+
+        // Called when the screen is shown again after a visit elsewhere; should only load what is new
+        void onShow();
+
+        // Called when the screen's navigation button is pressed while it is already showing
+        default void onReselect() {
+            onShow();
+        }
+    }
+
+    private final SessionBootstrap.Session session;
+    private final User currentUser;
+    private final CardLayout cardLayout = new CardLayout();
+    private final JPanel cardPanel = new JPanel(cardLayout);
+    private final Map<Destination, Screen> screens = new EnumMap<>(Destination.class);
+    private Destination current;
+    private JButton notificationsButton;
+
+    public AppShell(SessionBootstrap.Session session, Destination first) {
+        this.session = session;
+        currentUser = session.getUser();
+        setSize(WIDTH, HEIGHT);
+        setMinimumSize(new Dimension(WIDTH, HEIGHT));
+        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        setLayout(new BorderLayout());
+        add(cardPanel, BorderLayout.CENTER);
+        add(createNavigationPanel(), BorderLayout.SOUTH);
+        navigate(first);
+    }
+
+    public void navigate(Destination destination) {
+        Screen screen = screens.get(destination);
+        if (screen == null) {
+            screen = createScreen(destination);
+            screens.put(destination, screen);
+            cardPanel.add((Component) screen, destination.name());
+        } else if (destination == current) {
+            screen.onReselect();
+        } else {
+            screen.onShow();
+        }
+        if (destination == Destination.NOTIFICATIONS) {
+            notificationsButton.setText(null);
+        }
+        current = destination;
+        setTitle(screen.getTitle());
+        cardLayout.show(cardPanel, destination.name());
+    }
+
+    private Screen createScreen(Destination destination) {
+        switch (destination) {
+            case HOME:
+                return new QuakstagramHomeUI(currentUser, session.takeFirstFeedPage());
+            case EXPLORE:
+                return new ExploreUI(currentUser);
+            case UPLOAD:
+                return new ImageUploadUI(currentUser);
+            case NOTIFICATIONS:
+                return new NotificationsUI(currentUser);
+            case PROFILE:
+                return new QuakstagramProfileUI(currentUser);
+            default:
+                throw new IllegalArgumentException("Unknown destination: " + destination);
+        }
+    }
+
+    private JPanel createNavigationPanel() {
+        JPanel navigationPanel = new JPanel();
+        navigationPanel.setBackground(new Color(249, 249, 249));
+        navigationPanel.setLayout(new BoxLayout(navigationPanel, BoxLayout.X_AXIS));
+        navigationPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+        for (Destination destination : Destination.values()) {
+            if (destination != Destination.HOME) {
+                navigationPanel.add(Box.createHorizontalGlue());
+            }
+            JButton button = createIconButton(destination);
+            if (destination == Destination.NOTIFICATIONS) {
+                notificationsButton = button;
+                // Unread count from sign-in, cleared once the notifications screen has been opened
+                if (session.getUnreadCount() > 0) {
+                    button.setText(Integer.toString(session.getUnreadCount()));
+                }
+            }
+            navigationPanel.add(button);
+        }
+        return navigationPanel;
+    }
+
+    private JButton createIconButton(Destination destination) {
+        ImageIcon iconOriginal = new ImageIcon(destination.iconPath);
+        Image iconScaled = iconOriginal.getImage().getScaledInstance(NAV_ICON_SIZE, NAV_ICON_SIZE, Image.SCALE_SMOOTH);
+        JButton button = new JButton(new ImageIcon(iconScaled));
+        button.setBorder(BorderFactory.createEmptyBorder());
+        button.setContentAreaFilled(false);
+        button.addActionListener(e -> navigate(destination));
+        return button;
+    }
+}
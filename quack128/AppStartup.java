@@ -0,0 +1,25 @@
+// Process-wide startup wiring shared by the application's entry points. The maintenance jobs work on
+// tables the schema install creates, so they are scheduled only once it has succeeded.
+public class AppStartup {
+    private static boolean started;
+
+    private AppStartup() {
+    }
+
+    public static synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        ImageCache.scheduleStatsLogging();
+        DatabaseConnector.whenSchemaInstalled(AppStartup::scheduleMaintenanceJobs);
+    }
+
+    private static void scheduleMaintenanceJobs() {
+        PictureStats.scheduleReconciliation();
+        TimelineStore.scheduleTrim();
+        NotificationAggregator.scheduleCompaction();
+        Thumbnails.scheduleBackfill();
+        Thumbnails.scheduleCompaction();
+    }
+}
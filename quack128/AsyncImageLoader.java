@@ -0,0 +1,166 @@
+import javax.swing.*;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Loads picture variants into labels without blocking the EDT. A label shows a placeholder right away,
+// the decode runs on a fixed worker pool and the image is set back on the EDT. Scroll panes registered
+// with watch() cancel loads for labels scrolled out of view and restart them when they come back.
+// All methods must be called on the EDT.
+public class AsyncImageLoader {
+    private static final int THREADS = Integer.getInteger("quack.images.loaderThreads",
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "quack-image-loader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final Map<Thumbnails.Variant, Icon> PLACEHOLDERS = new EnumMap<>(Thumbnails.Variant.class);
+
+    private AsyncImageLoader() {
+    }
+
+    public static void load(JLabel label, String imagePath, Thumbnails.Variant variant) {
+        cancel(label);
+        BufferedImage cached = ImageCache.getIfPresent(imagePath, variant);
+        if (cached != null) {
+            label.setText(null);
+            label.setIcon(new ImageIcon(cached));
+            return;
+        }
+        label.setText(null);
+        label.setIcon(placeholder(variant));
+        Request request = new Request(label, imagePath, variant);
+        label.putClientProperty(Request.class, request);
+        request.start();
+    }
+
+    // For views that paint through a cell renderer and have no label per item: decodes into ImageCache
+    // and then runs onLoaded on the EDT with whether the image could be loaded
+    public static Future<?> prefetch(String imagePath, Thumbnails.Variant variant, Consumer<Boolean> onLoaded) {
+        return EXECUTOR.submit(() -> {
+            boolean loaded;
+            try {
+                ImageCache.get(imagePath, variant);
+                loaded = true;
+            } catch (IOException e) {
+                System.err.println("Image not found: " + imagePath);
+                loaded = false;
+            }
+            boolean result = loaded;
+            SwingUtilities.invokeLater(() -> onLoaded.accept(result));
+        });
+    }
+
+    public static void cancel(JLabel label) {
+        Request request = (Request) label.getClientProperty(Request.class);
+        if (request != null) {
+            request.stop();
+            label.putClientProperty(Request.class, null);
+        }
+    }
+
+    public static void watch(JScrollPane scrollPane) {
+        JViewport viewport = scrollPane.getViewport();
+        viewport.addChangeListener(e -> updateVisibility(viewport));
+        SwingUtilities.invokeLater(() -> updateVisibility(viewport));
+    }
+
+    private static void updateVisibility(JViewport viewport) {
+        Component view = viewport.getView();
+        if (view instanceof Container) {
+            updateVisibility((Container) view, viewport.getViewRect(), view);
+        }
+    }
+
+    private static void updateVisibility(Container container, Rectangle visible, Component view) {
+        for (Component child : container.getComponents()) {
+            if (child instanceof JLabel) {
+                Request request = (Request) ((JLabel) child).getClientProperty(Request.class);
+                if (request != null) {
+                    Rectangle bounds = SwingUtilities.convertRectangle(container, child.getBounds(), view);
+                    if (bounds.intersects(visible)) {
+                        request.start();
+                    } else {
+                        request.stop();
+                    }
+                }
+            } else if (child instanceof Container) {
+                updateVisibility((Container) child, visible, view);
+            }
+        }
+    }
+
+    private static Icon placeholder(Thumbnails.Variant variant) {
+        return PLACEHOLDERS.computeIfAbsent(variant, v -> {
+            BufferedImage image = new BufferedImage(v.getWidth(), v.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.setColor(new Color(238, 238, 238));
+            g.fillRect(0, 0, v.getWidth(), v.getHeight());
+            g.dispose();
+            return new ImageIcon(image);
+        });
+    }
+
+    private static class Request {
+        private final JLabel label;
+        private final String imagePath;
+        private final Thumbnails.Variant variant;
+        private Future<?> future;
+
+        Request(JLabel label, String imagePath, Thumbnails.Variant variant) {
+            this.label = label;
+            this.imagePath = imagePath;
+            this.variant = variant;
+        }
+
+        void start() {
+            if (future != null) {
+                return;
+            }
+            future = EXECUTOR.submit(() -> {
+                try {
+                    BufferedImage image = ImageCache.get(imagePath, variant);
+                    SwingUtilities.invokeLater(() -> finish(new ImageIcon(image), null));
+                } catch (IOException e) {
+                    System.err.println("Image not found: " + imagePath);
+                    SwingUtilities.invokeLater(() -> finish(null, "Image not found"));
+                }
+            });
+        }
+
+        // A load already decoding runs to completion (and lands in ImageCache), but its result is dropped
+        void stop() {
+            if (future != null) {
+                future.cancel(false);
+                future = null;
+            }
+        }
+
+        private void finish(Icon icon, String errorText) {
+            if (label.getClientProperty(Request.class) != this || future == null) {
+                return;
+            }
+            label.putClientProperty(Request.class, null);
+            label.setIcon(icon);
+            label.setText(errorText);
+        }
+    }
+}
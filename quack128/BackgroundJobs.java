@@ -0,0 +1,69 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Shared scheduler for periodic maintenance work (counter reconciliation, cleanup, ...)
+public class BackgroundJobs {
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "quack-background-jobs");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final List<Runnable> SHUTDOWN_TASKS = new ArrayList<>();
+    private static final List<Runnable> FINAL_SHUTDOWN_TASKS = new ArrayList<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(BackgroundJobs::runShutdownTasks, "quack-shutdown"));
+    }
+
+    private BackgroundJobs() {
+    }
+
+    public static synchronized void runOnShutdown(Runnable task) {
+        SHUTDOWN_TASKS.add(task);
+    }
+
+    // For resources the regular shutdown tasks may still need, such as the connection pool
+    public static synchronized void runLastOnShutdown(Runnable task) {
+        FINAL_SHUTDOWN_TASKS.add(task);
+    }
+
+    private static void runShutdownTasks() {
+        List<Runnable> tasks;
+        synchronized (BackgroundJobs.class) {
+            tasks = new ArrayList<>(SHUTDOWN_TASKS);
+            tasks.addAll(FINAL_SHUTDOWN_TASKS);
+        }
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Shutdown task failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // For one-off work that should not hold up the caller, such as seeding a newly created table
+    public static void runOnce(String name, Runnable job) {
+        SCHEDULER.execute(() -> {
+            try {
+                job.run();
+            } catch (RuntimeException e) {
+                System.err.println("Background job '" + name + "' failed: " + e.getMessage());
+            }
+        });
+    }
+
+    public static void scheduleWithFixedDelay(String name, Runnable job, long initialDelay, long delay, TimeUnit unit) {
+        SCHEDULER.scheduleWithFixedDelay(() -> {
+            try {
+                job.run();
+            } catch (RuntimeException e) {
+                // An uncaught exception would cancel every future run of the job
+                System.err.println("Background job '" + name + "' failed: " + e.getMessage());
+            }
+        }, initialDelay, delay, unit);
+    }
+}
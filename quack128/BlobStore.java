@@ -0,0 +1,117 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Content-addressed storage for uploaded originals. A blob is named by the SHA-256 of its bytes and
+// lives under two levels of 256-way fan-out (img/blobs/3f/a9/3fa9...c1.jpg), so identical uploads
+// share one file and no directory grows past a few thousand entries. PICTURE_BLOB maps each picture
+// to its blob; resolve() is the one place that turns a PICTURE.imagePath into the file to read.
+public class BlobStore {
+    private static final Path ROOT = Paths.get(System.getProperty("quack.blobs.dir", "img/blobs"));
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RESOLVED = Integer.getInteger("quack.blobs.resolveCacheSize", 10_000);
+
+    // imagePath -> file; blob contents never change, so entries only leave by LRU eviction
+    private static final Map<String, Path> RESOLVED = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Path> eldest) {
+            return size() > MAX_RESOLVED;
+        }
+    };
+
+    private BlobStore() {
+    }
+
+    // Copies the stream into the store, hashing it in the same pass; returns the blob id
+    public static String put(InputStream in, String extension) throws IOException {
+        Files.createDirectories(ROOT);
+        Path temp = Files.createTempFile(ROOT, "upload", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            String normalized = extension.toLowerCase(Locale.ROOT);
+            String blobId = HexFormat.of().formatHex(digest.digest()) + (normalized.isEmpty() ? "" : "." + normalized);
+            Path path = pathOf(blobId);
+            if (!Files.exists(path)) {
+                Files.createDirectories(path.getParent());
+                // A concurrent upload of the same bytes may win the race; its file is identical
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return blobId;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public static Path pathOf(String blobId) {
+        return ROOT.resolve(blobId.substring(0, 2)).resolve(blobId.substring(2, 4)).resolve(blobId);
+    }
+
+    // Records which blob a picture shows; call inside the transaction that inserts the PICTURE row
+    public static void link(Connection conn, String imagePath, String blobId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO PICTURE_BLOB (imagePath, blobId) VALUES (?, ?)")) {
+            stmt.setString(1, imagePath);
+            stmt.setString(2, blobId);
+            stmt.executeUpdate();
+        }
+        synchronized (RESOLVED) {
+            RESOLVED.put(imagePath, pathOf(blobId));
+        }
+    }
+
+    // Pictures stored before blobs existed have no PICTURE_BLOB row; their imagePath is the file itself
+    public static Path resolve(String imagePath) {
+        synchronized (RESOLVED) {
+            Path cached = RESOLVED.get(imagePath);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Path path;
+        try (Connection conn = new DatabaseConnector().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT blobId FROM PICTURE_BLOB WHERE imagePath = ?")) {
+            stmt.setString(1, imagePath);
+            try (ResultSet rs = stmt.executeQuery()) {
+                path = rs.next() ? pathOf(rs.getString("blobId")) : Paths.get(imagePath);
+            }
+        } catch (SQLException e) {
+            // Not cached, so the lookup is retried once the database is reachable again
+            System.err.println("Error resolving " + imagePath + ": " + e.getMessage());
+            return Paths.get(imagePath);
+        }
+        synchronized (RESOLVED) {
+            RESOLVED.put(imagePath, path);
+        }
+        return path;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
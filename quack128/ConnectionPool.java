@@ -0,0 +1,404 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded JDBC connection pool; connections handed out are proxies whose close() returns them to the pool
+public class ConnectionPool {
+    private static final long[] WAIT_BUCKET_LIMITS_MS = {1, 5, 10, 50, 100, 500, 1000};
+    private static final Set<Class<?>> CHILD_TYPES = Set.of(Statement.class, PreparedStatement.class,
+            CallableStatement.class, ResultSet.class, DatabaseMetaData.class);
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Config config;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong closed = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(WAIT_BUCKET_LIMITS_MS.length + 1);
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+
+    public ConnectionPool(String url, String user, String password, Config config) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "quack-db-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::evictIdle,
+                config.housekeepingIntervalMillis, config.housekeepingIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection borrow() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + config.acquireTimeoutMillis
+                        + "ms waiting for a database connection (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeUsableConnection();
+            recordWait(System.nanoTime() - start);
+            active.incrementAndGet();
+            borrowed.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeUsableConnection() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (pooled.isExpired(now)) {
+                closePhysical(pooled);
+            } else if (now - pooled.lastReturned > config.validateAfterIdleMillis
+                    && !isValid(pooled)) {
+                closePhysical(pooled);
+            } else {
+                return pooled;
+            }
+        }
+        Connection physical = DriverManager.getConnection(url, user, password);
+        created.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(config.validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            if (shutdown || pooled.physical.isClosed() || pooled.isExpired(System.currentTimeMillis())) {
+                closePhysical(pooled);
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.physical.clearWarnings();
+            pooled.lastReturned = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            closePhysical(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        int idleCount = idle.size();
+        for (PooledConnection pooled : idle.toArray(new PooledConnection[0])) {
+            boolean stale = now - pooled.lastReturned > config.idleTimeoutMillis && idleCount > config.minIdle;
+            if ((stale || pooled.isExpired(now)) && idle.remove(pooled)) {
+                closePhysical(pooled);
+                idleCount--;
+            }
+        }
+        replenishIdle();
+    }
+
+    // Tops the idle set back up to minIdle after evictions, without exceeding maxSize in total
+    private void replenishIdle() {
+        while (!shutdown && idle.size() < config.minIdle && idle.size() + active.get() < config.maxSize) {
+            try {
+                Connection physical = DriverManager.getConnection(url, user, password);
+                created.incrementAndGet();
+                idle.offerLast(new PooledConnection(physical));
+            } catch (SQLException e) {
+                // Retried on the next housekeeping run
+                System.err.println("Error replenishing idle connections: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void closePhysical(PooledConnection pooled) {
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+        closed.incrementAndGet();
+    }
+
+    private void recordWait(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < WAIT_BUCKET_LIMITS_MS.length && millis >= WAIT_BUCKET_LIMITS_MS[bucket]) {
+            bucket++;
+        }
+        waitHistogram.incrementAndGet(bucket);
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closePhysical(pooled);
+        }
+    }
+
+    public Stats getStats() {
+        long[] histogram = new long[waitHistogram.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = waitHistogram.get(i);
+        }
+        return new Stats(active.get(), idle.size(), created.get(), closed.get(),
+                borrowed.get(), timeouts.get(), histogram);
+    }
+
+    private class PooledConnection {
+        private final Connection physical;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastReturned = createdAt;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        boolean isExpired(long now) {
+            return now - createdAt > config.maxLifetimeMillis;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new LeaseHandler(this));
+        }
+    }
+
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released;
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        giveBack(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + (released ? ", released" : "") + "]";
+                case "unwrap":
+                case "isWrapperFor":
+                    return unwrapToProxy(proxy, method, (Class<?>) args[0]);
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            Object result;
+            try {
+                result = method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return wrapChild(result, method.getReturnType(), (Connection) proxy, null);
+        }
+    }
+
+    // Statements, result sets and metadata would otherwise hand out the physical connection through
+    // getConnection()/getStatement(), which a caller could close or keep using after giving the lease back
+    private static Object wrapChild(Object target, Class<?> type, Connection lease, Statement owner) {
+        if (target == null || !CHILD_TYPES.contains(type)) {
+            return target;
+        }
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new ChildHandler(target, lease, owner));
+    }
+
+    private static Object unwrapToProxy(Object proxy, Method method, Class<?> iface) throws SQLException {
+        if (method.getName().equals("isWrapperFor")) {
+            return iface.isInstance(proxy);
+        }
+        if (iface.isInstance(proxy)) {
+            return proxy;
+        }
+        throw new SQLException("Pooled object does not implement " + iface.getName());
+    }
+
+    private static class ChildHandler implements InvocationHandler {
+        private final Object target;
+        private final Connection lease;
+        private final Statement owner;
+
+        ChildHandler(Object target, Connection lease, Statement owner) {
+            this.target = target;
+            this.lease = lease;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            int arity = args == null ? 0 : args.length;
+            switch (method.getName()) {
+                case "getConnection":
+                    if (arity == 0) {
+                        return lease;
+                    }
+                    break;
+                case "getStatement":
+                    if (arity == 0) {
+                        return owner;
+                    }
+                    break;
+                case "unwrap":
+                case "isWrapperFor":
+                    return unwrapToProxy(proxy, method, (Class<?>) args[0]);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return wrapChild(result, method.getReturnType(), lease, proxy instanceof Statement ? (Statement) proxy : owner);
+        }
+    }
+
+    public static class Config {
+        final int maxSize;
+        final int minIdle;
+        final long acquireTimeoutMillis;
+        final long idleTimeoutMillis;
+        final long maxLifetimeMillis;
+        final long validateAfterIdleMillis;
+        final int validationTimeoutSeconds;
+        final long housekeepingIntervalMillis;
+
+        public Config(int maxSize, int minIdle, long acquireTimeoutMillis, long idleTimeoutMillis,
+                      long maxLifetimeMillis, long validateAfterIdleMillis, int validationTimeoutSeconds,
+                      long housekeepingIntervalMillis) {
+            this.maxSize = maxSize;
+            this.minIdle = minIdle;
+            this.acquireTimeoutMillis = acquireTimeoutMillis;
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            this.maxLifetimeMillis = maxLifetimeMillis;
+            this.validateAfterIdleMillis = validateAfterIdleMillis;
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            this.housekeepingIntervalMillis = housekeepingIntervalMillis;
+        }
+
+        // Defaults can be overridden with -Dquack.db.pool.<name>=<value>
+        public static Config fromSystemProperties() {
+            return new Config(
+                    Integer.getInteger("quack.db.pool.maxSize", 10),
+                    Integer.getInteger("quack.db.pool.minIdle", 2),
+                    Long.getLong("quack.db.pool.acquireTimeoutMillis", 5_000L),
+                    Long.getLong("quack.db.pool.idleTimeoutMillis", 60_000L),
+                    Long.getLong("quack.db.pool.maxLifetimeMillis", 30 * 60_000L),
+                    Long.getLong("quack.db.pool.validateAfterIdleMillis", 500L),
+                    Integer.getInteger("quack.db.pool.validationTimeoutSeconds", 2),
+                    Long.getLong("quack.db.pool.housekeepingIntervalMillis", 30_000L));
+        }
+    }
+
+    public static class Stats {
+        private final int active;
+        private final int idle;
+        private final long created;
+        private final long closed;
+        private final long borrowed;
+        private final long timeouts;
+        private final long[] waitHistogram;
+
+        Stats(int active, int idle, long created, long closed, long borrowed, long timeouts, long[] waitHistogram) {
+            this.active = active;
+            this.idle = idle;
+            this.created = created;
+            this.closed = closed;
+            this.borrowed = borrowed;
+            this.timeouts = timeouts;
+            this.waitHistogram = waitHistogram;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public long getCreated() { return created; }
+        public long getClosed() { return closed; }
+        public long getBorrowed() { return borrowed; }
+        public long getTimeouts() { return timeouts; }
+
+        // Bucket i counts waits below WAIT_BUCKET_LIMITS_MS[i]; the last bucket counts everything slower
+        public long[] getWaitHistogram() { return waitHistogram.clone(); }
+
+        @Override
+        public String toString() {
+            StringBuilder histogram = new StringBuilder();
+            for (int i = 0; i < waitHistogram.length; i++) {
+                if (i > 0) {
+                    histogram.append(", ");
+                }
+                histogram.append(i < WAIT_BUCKET_LIMITS_MS.length
+                        ? "<" + WAIT_BUCKET_LIMITS_MS[i] + "ms"
+                        : ">=" + WAIT_BUCKET_LIMITS_MS[WAIT_BUCKET_LIMITS_MS.length - 1] + "ms");
+                histogram.append('=').append(waitHistogram[i]);
+            }
+            return "active=" + active + ", idle=" + idle + ", created=" + created + ", closed=" + closed
+                    + ", borrowed=" + borrowed + ", timeouts=" + timeouts + ", wait={" + histogram + "}";
+        }
+    }
+}
@@ -1,17 +1,65 @@
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DatabaseConnector {
     private static final String DB_URL = "jdbc:mysql://localhost:3306/quack?useSSL=false&serverTimezone=UTC";
     private static final String DB_USER = "BCS1510";
     private static final String DB_PASSWORD = "BCS1510";
 
+    private static final ConnectionPool POOL =
+            new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD, ConnectionPool.Config.fromSystemProperties());
+
+    private static volatile boolean initialized;
+    private static final List<Runnable> SCHEMA_INSTALLED_TASKS = new ArrayList<>();
+
+    static {
+        BackgroundJobs.runLastOnShutdown(POOL::shutdown);
+    }
+
     public Connection getConnection() throws SQLException {
+        if (!initialized) {
+            initialize();
+        }
         try {
-            return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+            return POOL.borrow();
         } catch (SQLException e) {
             throw new SQLException("Failed to establish database connection: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    // Installs the application's schema additions on first use. A failed install (for example, the
+    // database is not reachable yet) is retried by the next getConnection
+    private static synchronized void initialize() {
+        if (initialized) {
+            return;
+        }
+        try (Connection conn = POOL.borrow()) {
+            Schema.install(conn);
+        } catch (SQLException e) {
+            System.err.println("Error installing schema: " + e.getMessage());
+            return;
+        }
+        initialized = true;
+        for (Runnable task : SCHEMA_INSTALLED_TASKS) {
+            task.run();
+        }
+        SCHEMA_INSTALLED_TASKS.clear();
+    }
+
+    // Runs the task once the schema is installed, right away if it already is
+    public static void whenSchemaInstalled(Runnable task) {
+        synchronized (DatabaseConnector.class) {
+            if (!initialized) {
+                SCHEMA_INSTALLED_TASKS.add(task);
+                return;
+            }
+        }
+        task.run();
+    }
+
+    public static ConnectionPool.Stats getPoolStats() {
+        return POOL.getStats();
+    }
+}
@@ -1,11 +1,9 @@
-import javax.imageio.ImageIO;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -13,83 +11,323 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
-public class ExploreUI extends JFrame {
+public class ExploreUI extends JPanel implements AppShell.Screen {
 
     private static final int WIDTH = 300;
-    private static final int HEIGHT = 500;
-    private static final int NAV_ICON_SIZE = 20;
-    private static final int IMAGE_SIZE = WIDTH / 3;
+    private static final int SUGGESTION_COUNT = 3;
+    private static final int TRENDING_COUNT = 30;
+    private static final int SEARCH_DEBOUNCE_MILLIS = 250;
+    private static final int SEARCH_RESULT_COUNT = 8;
+    private static final int POST_RESULT_COUNT = 60;
     private final User currentUser;
+    private VirtualImageGrid imageGrid;
+    private final CardLayout cardLayout = new CardLayout();
+    private final JPanel cardPanel = new JPanel(cardLayout);
+    private final JPanel detailPanel = new JPanel(new BorderLayout());
+    private String requestedDetail;
+    // Trending list and newest picture behind the grid's first page; written by the page loader thread
+    private volatile List<String> shownTrending;
+    private volatile String shownNewest;
 
     public ExploreUI(User user) {
         currentUser = user;
-        setTitle("Explore");
-        setSize(WIDTH, HEIGHT);
-        setMinimumSize(new Dimension(WIDTH, HEIGHT));
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
         initializeUI();
     }
 
     private void initializeUI() {
-        getContentPane().removeAll();
-        setLayout(new BorderLayout());
+        JPanel gridPanel = new JPanel(new BorderLayout());
+        gridPanel.add(createHeaderPanel(), BorderLayout.NORTH);
+        gridPanel.add(createMainContentPanel(), BorderLayout.CENTER);
+
+        cardPanel.add(gridPanel, "Grid");
+        cardPanel.add(detailPanel, "Detail");
+        add(cardPanel, BorderLayout.CENTER);
+        cardLayout.show(cardPanel, "Grid");
+    }
 
-        JPanel headerPanel = createHeaderPanel();
-        JPanel navigationPanel = createNavigationPanel();
-        JPanel mainContentPanel = createMainContentPanel();
+    @Override
+    public String getTitle() {
+        return "Explore";
+    }
 
-        add(headerPanel, BorderLayout.NORTH);
-        add(mainContentPanel, BorderLayout.CENTER);
-        add(navigationPanel, BorderLayout.SOUTH);
+    // Re-reads trending and the newest picture off the EDT; the grid is only replaced when either moved
+    @Override
+    public void onShow() {
+        new SwingWorker<List<String>, Void>() {
+            private List<String> trending;
+
+            @Override
+            protected List<String> doInBackground() throws SQLException {
+                trending = TrendingEngine.get().getTrending(TRENDING_COUNT);
+                return PicturePages.recent(null, 1).getImagePaths();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<String> newest = get();
+                    String newestPath = newest.isEmpty() ? null : newest.get(0);
+                    // Before the first page has loaded there is nothing stale to replace
+                    if (shownTrending != null
+                            && (!trending.equals(shownTrending) || !Objects.equals(newestPath, shownNewest))) {
+                        imageGrid.setSource(createExploreSource(trending));
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error refreshing Explore: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
 
-        revalidate();
-        repaint();
+    @Override
+    public void onReselect() {
+        cardLayout.show(cardPanel, "Grid");
+        imageGrid.setSource(createExploreSource(null));
     }
 
     private JPanel createMainContentPanel() {
         JPanel searchPanel = new JPanel(new BorderLayout());
         JTextField searchField = new JTextField(" Search Users");
+        setupUserSearch(searchField);
         searchPanel.add(searchField, BorderLayout.CENTER);
         searchPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, searchField.getPreferredSize().height));
 
-        JPanel imageGridPanel = new JPanel(new GridLayout(0, 3, 2, 2));
+        imageGrid = new VirtualImageGrid(this::displayImage);
+        imageGrid.setSource(createExploreSource(null));
 
-        try (Connection conn = new DatabaseConnector().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT imagePath FROM PICTURE ORDER BY createdAt DESC");
-             ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                String imagePath = rs.getString("imagePath");
-                File imageFile = new File(imagePath);
-                if (imageFile.exists()) {
-                    ImageIcon imageIcon = new ImageIcon(new ImageIcon(imagePath).getImage().getScaledInstance(IMAGE_SIZE, IMAGE_SIZE, Image.SCALE_SMOOTH));
-                    JLabel imageLabel = new JLabel(imageIcon);
-                    imageLabel.addMouseListener(new MouseAdapter() {
-                        @Override
-                        public void mouseClicked(MouseEvent e) {
-                            displayImage(imagePath);
-                        }
-                    });
-                    imageGridPanel.add(imageLabel);
-                }
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading images: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-            System.err.println("Error loading images: " + e.getMessage());
-        }
-
-        JScrollPane scrollPane = new JScrollPane(imageGridPanel);
+        JScrollPane scrollPane = new JScrollPane(imageGrid);
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+        AsyncImageLoader.watch(scrollPane);
 
         JPanel mainContentPanel = new JPanel();
         mainContentPanel.setLayout(new BoxLayout(mainContentPanel, BoxLayout.Y_AXIS));
         mainContentPanel.add(searchPanel);
+        mainContentPanel.add(createSuggestionsPanel());
         mainContentPanel.add(scrollPane);
         return mainContentPanel;
     }
 
+    // Trending pictures first, then everything else by recency in keyset pages. Pass the trending list
+    // when it is already known, or null to fetch it with the first page.
+    private VirtualImageGrid.PageSource createExploreSource(List<String> knownTrending) {
+        // Fixed on first use so a re-fetched page agrees with the others about what to skip
+        Set<String> trending = Collections.synchronizedSet(new LinkedHashSet<>());
+        if (knownTrending != null) {
+            trending.addAll(knownTrending);
+        }
+        return (after, limit) -> {
+            List<String> imagePaths = new ArrayList<>();
+            if (after == null) {
+                synchronized (trending) {
+                    if (knownTrending == null && trending.isEmpty()) {
+                        trending.addAll(TrendingEngine.get().getTrending(TRENDING_COUNT));
+                    }
+                    imagePaths.addAll(trending);
+                }
+            }
+            VirtualImageGrid.Page page = PicturePages.recent(after, limit);
+            if (after == null) {
+                // What onShow compares against to decide whether the grid is out of date
+                synchronized (trending) {
+                    shownTrending = new ArrayList<>(trending);
+                }
+                shownNewest = page.getImagePaths().isEmpty() ? null : page.getImagePaths().get(0);
+            }
+            for (String imagePath : page.getImagePaths()) {
+                if (!trending.contains(imagePath)) {
+                    imagePaths.add(imagePath);
+                }
+            }
+            return new VirtualImageGrid.Page(imagePaths, page.getNext(), page.hasMore());
+        };
+    }
+
+    // Caption/comment search over SearchIndex; "#tag" queries match hashtags only
+    private void runPostSearch(String query) {
+        new SwingWorker<List<String>, Void>() {
+            @Override
+            protected List<String> doInBackground() throws SQLException {
+                return SearchIndex.get().search(query, POST_RESULT_COUNT);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<String> imagePaths = get();
+                    if (imagePaths.isEmpty()) {
+                        JOptionPane.showMessageDialog(ExploreUI.this, "No posts match \"" + query + "\"");
+                        return;
+                    }
+                    imageGrid.setItems(imagePaths);
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(ExploreUI.this, "Error searching posts: " + e.getMessage(), "Search Error", JOptionPane.ERROR_MESSAGE);
+                    System.err.println("Error searching posts: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    // Typeahead over UsernameIndex: keystrokes restart a short timer, the query runs off the EDT and
+    // results that arrive after the text has changed again are dropped. Enter searches posts instead.
+    private void setupUserSearch(JTextField searchField) {
+        JPopupMenu resultsPopup = new JPopupMenu();
+        resultsPopup.setFocusable(false);
+        Timer debounce = new Timer(SEARCH_DEBOUNCE_MILLIS, e -> runUserSearch(searchField, resultsPopup));
+        debounce.setRepeats(false);
+
+        searchField.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                if (searchField.getText().equals(" Search Users")) {
+                    searchField.setText("");
+                }
+            }
+        });
+        searchField.addActionListener(e -> {
+            String query = searchField.getText().trim();
+            if (!query.isEmpty()) {
+                debounce.stop();
+                resultsPopup.setVisible(false);
+                runPostSearch(query);
+            }
+        });
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { debounce.restart(); }
+            @Override
+            public void removeUpdate(DocumentEvent e) { debounce.restart(); }
+            @Override
+            public void changedUpdate(DocumentEvent e) { debounce.restart(); }
+        });
+    }
+
+    private void runUserSearch(JTextField searchField, JPopupMenu resultsPopup) {
+        String query = searchField.getText().trim();
+        if (query.isEmpty() || query.equals("Search Users")) {
+            resultsPopup.setVisible(false);
+            return;
+        }
+        new SwingWorker<List<String>, Void>() {
+            @Override
+            protected List<String> doInBackground() throws SQLException {
+                if (query.startsWith("#")) {
+                    return new ArrayList<>();
+                }
+                return UsernameIndex.get().search(query, SEARCH_RESULT_COUNT);
+            }
+
+            @Override
+            protected void done() {
+                if (!query.equals(searchField.getText().trim())) {
+                    return;
+                }
+                try {
+                    List<String> usernames = get();
+                    resultsPopup.setVisible(false);
+                    resultsPopup.removeAll();
+                    for (String username : usernames) {
+                        JMenuItem item = new JMenuItem(username);
+                        item.addActionListener(e -> showUserSummary(username));
+                        resultsPopup.add(item);
+                    }
+                    if (!usernames.isEmpty()) {
+                        resultsPopup.addSeparator();
+                    }
+                    JMenuItem postsItem = new JMenuItem("Posts matching \"" + query + "\"");
+                    postsItem.addActionListener(e -> runPostSearch(query));
+                    resultsPopup.add(postsItem);
+                    resultsPopup.show(searchField, 0, searchField.getHeight());
+                } catch (Exception e) {
+                    System.err.println("Error searching users: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void showUserSummary(String username) {
+        new SwingWorker<UserSummary, Void>() {
+            private boolean following;
+
+            @Override
+            protected UserSummary doInBackground() {
+                following = currentUser.getUsername().equals(username) || isFollowing(username);
+                return getPosterSummary(username);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    showUserSummary(username, get(), following);
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error fetching user summary: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void showUserSummary(String username, UserSummary summary, boolean following) {
+        String message = "<html><b>" + username + "</b><br>Bio: " + summary.getBio() + "<br>Posts: " + summary.getPostsCount()
+                + "<br>Following: " + summary.getFollowingCount() + "<br>Followers: " + summary.getFollowersCount() + "</html>";
+        if (following) {
+            JOptionPane.showMessageDialog(this, message, username, JOptionPane.PLAIN_MESSAGE);
+            return;
+        }
+        Object[] options = {"Follow", "Close"};
+        int choice = JOptionPane.showOptionDialog(this, message, username, JOptionPane.DEFAULT_OPTION,
+                JOptionPane.PLAIN_MESSAGE, null, options, options[1]);
+        if (choice == 0) {
+            follow(this, username, null);
+        }
+    }
+
+    // "Suggested for you" strip; suggestions are computed off the EDT and filled in when ready
+    private JPanel createSuggestionsPanel() {
+        JPanel suggestionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 2));
+        suggestionsPanel.setVisible(false);
+        new SwingWorker<List<FollowSuggestionEngine.Suggestion>, Void>() {
+            @Override
+            protected List<FollowSuggestionEngine.Suggestion> doInBackground() throws SQLException {
+                return FollowSuggestionEngine.suggest(currentUser.getUsername(), SUGGESTION_COUNT);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<FollowSuggestionEngine.Suggestion> suggestions = get();
+                    if (suggestions.isEmpty()) {
+                        return;
+                    }
+                    suggestionsPanel.add(new JLabel("Suggested:"));
+                    for (FollowSuggestionEngine.Suggestion suggestion : suggestions) {
+                        JButton followButton = new JButton(suggestion.getUsername());
+                        followButton.setMargin(new Insets(1, 4, 1, 4));
+                        followButton.setToolTipText("Follow " + suggestion.getUsername() + " (" + suggestion.getMutualCount()
+                                + (suggestion.getMutualCount() == 1 ? " mutual connection)" : " mutual connections)"));
+                        setupFollowButton(followButton, suggestion.getUsername());
+                        suggestionsPanel.add(followButton);
+                    }
+                    suggestionsPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, suggestionsPanel.getPreferredSize().height));
+                    suggestionsPanel.setVisible(true);
+                    suggestionsPanel.revalidate();
+                } catch (Exception e) {
+                    System.err.println("Error loading follow suggestions: " + e.getMessage());
+                }
+            }
+        }.execute();
+        return suggestionsPanel;
+    }
+
     private JPanel createHeaderPanel() {
         JPanel headerPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         headerPanel.setBackground(new Color(51, 51, 51));
@@ -101,38 +339,45 @@ public class ExploreUI extends JFrame {
         return headerPanel;
     }
 
-    private JPanel createNavigationPanel() {
-        JPanel navigationPanel = new JPanel();
-        navigationPanel.setBackground(new Color(249, 249, 249));
-        navigationPanel.setLayout(new BoxLayout(navigationPanel, BoxLayout.X_AXIS));
-        navigationPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
-
-        navigationPanel.add(createIconButton("img/icons/home.png", "home"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/search.png", "explore"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/add.png", "add"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/heart.png", "notification"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/profile.png", "profile"));
-
-        return navigationPanel;
-    }
-
+    // The picture's row and the poster's summary are read off the EDT; a click on another picture
+    // before they arrive wins
     private void displayImage(String imagePath) {
-        getContentPane().removeAll();
-        setLayout(new BorderLayout());
+        requestedDetail = imagePath;
+        new SwingWorker<PictureDetails, Void>() {
+            @Override
+            protected PictureDetails doInBackground() throws SQLException {
+                return loadPictureDetails(imagePath);
+            }
+
+            @Override
+            protected void done() {
+                if (!imagePath.equals(requestedDetail)) {
+                    return;
+                }
+                PictureDetails details;
+                try {
+                    details = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(ExploreUI.this, "Error loading image details: " + cause.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+                    System.err.println("Error loading image details: " + cause.getMessage());
+                    details = new PictureDetails("", "", "", 0, new UserSummary("", "", 0, 0, 0));
+                }
+                showDetails(imagePath, details);
+            }
+        }.execute();
+    }
 
+    private PictureDetails loadPictureDetails(String imagePath) throws SQLException {
         String username = "";
         String caption = "";
         String timestampString = "";
         int likes = 0;
         try (Connection conn = new DatabaseConnector().getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT p.username, p.caption, p.createdAt, COUNT(l.username) AS likes " +
-                             "FROM PICTURE p LEFT JOIN `LIKE` l ON p.imagePath = l.imagePath " +
-                             "WHERE p.imagePath = ? GROUP BY p.imagePath")) {
+                     "SELECT p.username, p.caption, p.createdAt, COALESCE(s.likesCount, 0) AS likes " +
+                             "FROM PICTURE p LEFT JOIN PICTURE_STATS s ON p.imagePath = s.imagePath " +
+                             "WHERE p.imagePath = ?")) {
             stmt.setString(1, imagePath);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -142,12 +387,18 @@ public class ExploreUI extends JFrame {
                     likes = rs.getInt("likes");
                 }
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading image details: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-            System.err.println("Error loading image details: " + e.getMessage());
         }
+        return new PictureDetails(username, caption, timestampString, likes, getPosterSummary(username));
+    }
+
+    private void showDetails(String imagePath, PictureDetails details) {
+        detailPanel.removeAll();
 
-        String bio = getPosterBio(username);
+        String username = details.username;
+        String caption = details.caption;
+        String timestampString = details.timestampString;
+        int likes = details.likes;
+        UserSummary poster = details.poster;
         String timeSincePosting = "Unknown";
         if (!timestampString.isEmpty()) {
             try {
@@ -163,10 +414,7 @@ public class ExploreUI extends JFrame {
         JPanel topPanel = new JPanel(new BorderLayout());
         JPanel userPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
         JLabel usernameLabel = new JLabel(username);
-        int posterImageCount = getPosterPostCount(username);
-        int posterFollowersCount = getPosterFollowerCount(username);
-        int posterFollowingCount = getPosterFollowingCount(username);
-        usernameLabel.setToolTipText("<html>Bio: " + bio + "<br>Posts: " + posterImageCount + "<br>Following: " + posterFollowingCount + "<br>Followers: " + posterFollowersCount + "</html>");
+        usernameLabel.setToolTipText("<html>Bio: " + poster.getBio() + "<br>Posts: " + poster.getPostsCount() + "<br>Following: " + poster.getFollowingCount() + "<br>Followers: " + poster.getFollowersCount() + "</html>");
         JButton followButton = new JButton("Follow");
         setupFollowButton(followButton, username);
         userPanel.add(usernameLabel);
@@ -179,14 +427,7 @@ public class ExploreUI extends JFrame {
 
         JLabel imageLabel = new JLabel();
         imageLabel.setHorizontalAlignment(JLabel.CENTER);
-        try {
-            BufferedImage originalImage = ImageIO.read(new File(imagePath));
-            ImageIcon imageIcon = new ImageIcon(originalImage);
-            imageLabel.setIcon(imageIcon);
-        } catch (IOException ex) {
-            imageLabel.setText("Image not found");
-            System.err.println("Image not found: " + imagePath);
-        }
+        AsyncImageLoader.load(imageLabel, imagePath, Thumbnails.Variant.DETAIL);
 
         JPanel bottomPanel = new JPanel(new BorderLayout());
         JTextArea captionTextArea = new JTextArea(caption);
@@ -202,27 +443,19 @@ public class ExploreUI extends JFrame {
         backButton.setPreferredSize(new Dimension(WIDTH - 20, backButton.getPreferredSize().height));
         backButtonPanel.add(backButton);
 
-        backButton.addActionListener(e -> {
-            SwingUtilities.invokeLater(() -> {
-                getContentPane().removeAll();
-                add(createHeaderPanel(), BorderLayout.NORTH);
-                add(createMainContentPanel(), BorderLayout.CENTER);
-                add(createNavigationPanel(), BorderLayout.SOUTH);
-                revalidate();
-                repaint();
-            });
-        });
+        backButton.addActionListener(e -> cardLayout.show(cardPanel, "Grid"));
 
         JPanel containerPanel = new JPanel(new BorderLayout());
         containerPanel.add(topPanel, BorderLayout.NORTH);
         containerPanel.add(imageLabel, BorderLayout.CENTER);
         containerPanel.add(bottomPanel, BorderLayout.SOUTH);
 
-        add(backButtonPanel, BorderLayout.NORTH);
-        add(containerPanel, BorderLayout.CENTER);
+        detailPanel.add(backButtonPanel, BorderLayout.NORTH);
+        detailPanel.add(containerPanel, BorderLayout.CENTER);
 
-        revalidate();
-        repaint();
+        detailPanel.revalidate();
+        detailPanel.repaint();
+        cardLayout.show(cardPanel, "Detail");
     }
 
     private void setupFollowButton(JButton followButton, String username) {
@@ -230,161 +463,81 @@ public class ExploreUI extends JFrame {
     }
 
     private void handleFollowButtonClick(JButton followButton, String username) {
-        boolean isFollowing = isFollowing(username);
-        if (isFollowing || currentUser.getUsername().equals(username)) {
-            JOptionPane.showMessageDialog(followButton, "Cannot follow " + username + ". You may already be following them or trying to follow yourself.");
-        } else {
-            try {
-                new UserRelationshipManager().followUser(currentUser.getUsername(), username);
-                JOptionPane.showMessageDialog(followButton, "Now following " + username);
-                followButton.setEnabled(false);
+        followButton.setEnabled(false);
+        follow(followButton, username, followed -> {
+            followButton.setEnabled(!followed);
+            if (followed) {
                 followButton.setText("Following");
-            } catch (SQLException e) {
-                JOptionPane.showMessageDialog(followButton, "Error following " + username + ": " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-                System.err.println("Error following user: " + e.getMessage());
             }
-        }
-    }
-
-    private boolean isFollowing(String poster) {
-        try (Connection conn = new DatabaseConnector().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM FOLLOW WHERE follower = ? AND followed = ?")) {
-            stmt.setString(1, currentUser.getUsername());
-            stmt.setString(2, poster);
-            try (ResultSet rs = stmt.executeQuery()) {
-                return rs.next();
-            }
-        } catch (SQLException e) {
-            System.err.println("Error checking follow status: " + e.getMessage());
-            return false;
-        }
+        });
     }
 
-    private int getPosterPostCount(String poster) {
-        try (Connection conn = new DatabaseConnector().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM PICTURE WHERE username = ?")) {
-            stmt.setString(1, poster);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
+    // Following also backfills the new timeline rows, so it runs off the EDT; onDone (may be null) gets
+    // whether the follow went through
+    private void follow(Component parent, String username, Consumer<Boolean> onDone) {
+        new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() throws SQLException {
+                if (currentUser.getUsername().equals(username) || isFollowing(username)) {
+                    return false;
                 }
+                new UserRelationshipManager().followUser(currentUser.getUsername(), username);
+                return true;
             }
-        } catch (SQLException e) {
-            System.err.println("Error fetching post count: " + e.getMessage());
-        }
-        return 0;
-    }
 
-    private int getPosterFollowerCount(String poster) {
-        try (Connection conn = new DatabaseConnector().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM FOLLOW WHERE followed = ?")) {
-            stmt.setString(1, poster);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
+            @Override
+            protected void done() {
+                boolean followed = false;
+                try {
+                    followed = get();
+                    if (followed) {
+                        JOptionPane.showMessageDialog(parent, "Now following " + username);
+                    } else {
+                        JOptionPane.showMessageDialog(parent, "Cannot follow " + username + ". You may already be following them or trying to follow yourself.");
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(parent, "Error following " + username + ": " + cause.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+                    System.err.println("Error following user: " + cause.getMessage());
                 }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error fetching follower count: " + e.getMessage());
-        }
-        return 0;
-    }
-
-    private int getPosterFollowingCount(String poster) {
-        try (Connection conn = new DatabaseConnector().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM FOLLOW WHERE follower = ?")) {
-            stmt.setString(1, poster);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
+                if (onDone != null) {
+                    onDone.accept(followed);
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("Error fetching following count: " + e.getMessage());
-        }
-        return 0;
+        }.execute();
     }
 
-    private String getPosterBio(String poster) {
-        try (Connection conn = new DatabaseConnector().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT bio FROM USER WHERE username = ?")) {
-            stmt.setString(1, poster);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getString("bio");
-                }
-            }
+    private boolean isFollowing(String poster) {
+        try {
+            return new UserRelationshipManager().isAlreadyFollowing(currentUser.getUsername(), poster);
         } catch (SQLException e) {
-            System.err.println("Error fetching bio: " + e.getMessage());
+            System.err.println("Error checking follow status: " + e.getMessage());
+            return false;
         }
-        return "";
     }
 
-    private JButton createIconButton(String iconPath, String buttonType) {
-        ImageIcon iconOriginal;
+    private UserSummary getPosterSummary(String poster) {
         try {
-            iconOriginal = new ImageIcon(iconPath);
-        } catch (Exception e) {
-            iconOriginal = new ImageIcon();
-            System.err.println("Icon not found: " + iconPath);
-        }
-        Image iconScaled = iconOriginal.getImage().getScaledInstance(NAV_ICON_SIZE, NAV_ICON_SIZE, Image.SCALE_SMOOTH);
-        JButton button = new JButton(new ImageIcon(iconScaled));
-        button.setBorder(BorderFactory.createEmptyBorder());
-        button.setContentAreaFilled(false);
-
-        switch (buttonType) {
-            case "home":
-                button.addActionListener(e -> openHomeUI(currentUser));
-                break;
-            case "profile":
-                button.addActionListener(e -> openProfileUI(currentUser));
-                break;
-            case "notification":
-                button.addActionListener(e -> notificationsUI(currentUser));
-                break;
-            case "explore":
-                button.addActionListener(e -> exploreUI(currentUser));
-                break;
-            case "add":
-                button.addActionListener(e -> imageUploadUI(currentUser));
-                break;
+            return UserSummaryService.get(poster);
+        } catch (SQLException e) {
+            System.err.println("Error fetching poster summary: " + e.getMessage());
+            return new UserSummary(poster, "", 0, 0, 0);
         }
-        return button;
-    }
-
-    private void imageUploadUI(User user) {
-        SwingUtilities.invokeLater(() -> {
-            dispose();
-            new ImageUploadUI(user).setVisible(true);
-        });
-    }
-
-    private void openProfileUI(User user) {
-        SwingUtilities.invokeLater(() -> {
-            dispose();
-            new QuakstagramProfileUI(user).setVisible(true);
-        });
     }
 
-    private void notificationsUI(User user) {
-        SwingUtilities.invokeLater(() -> {
-            dispose();
-            new NotificationsUI(user).setVisible(true);
-        });
-    }
-
-    private void openHomeUI(User user) {
-        SwingUtilities.invokeLater(() -> {
-            dispose();
-            new QuakstagramHomeUI(user).setVisible(true);
-        });
-    }
-
-    private void exploreUI(User user) {
-        SwingUtilities.invokeLater(() -> {
-            dispose();
-            new ExploreUI(user).setVisible(true);
-        });
+    private static class PictureDetails {
+        private final String username;
+        private final String caption;
+        private final String timestampString;
+        private final int likes;
+        private final UserSummary poster;
+
+        PictureDetails(String username, String caption, String timestampString, int likes, UserSummary poster) {
+            this.username = username;
+            this.caption = caption;
+            this.timestampString = timestampString;
+            this.likes = likes;
+            this.poster = poster;
+        }
     }
-}
\ No newline at end of file
+}
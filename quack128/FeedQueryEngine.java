@@ -0,0 +1,146 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Builds a viewer's home feed (posts, like counts and the viewer's liked flag) one keyset page at a time
+public class FeedQueryEngine {
+    private static final String POST_COLUMNS =
+            "SELECT p.imagePath, p.caption, p.username, p.createdAt, " +
+            "COALESCE(s.likesCount, 0) AS likes, " +
+            "EXISTS(SELECT 1 FROM `LIKE` l WHERE l.imagePath = p.imagePath AND l.username = ?) AS liked ";
+
+    // Fan-out timeline rows merged with the posts of followed authors that are too popular to fan out
+    private static final String TIMELINE_QUERY = POST_COLUMNS +
+            "FROM (" +
+            "(SELECT t.imagePath, t.createdAt FROM TIMELINE t WHERE t.owner = ? %1$s " +
+            "ORDER BY t.createdAt DESC, t.imagePath DESC LIMIT ?) " +
+            "UNION " +
+            "(SELECT pp.imagePath, pp.createdAt FROM FOLLOW f " +
+            "JOIN TIMELINE_PULL_AUTHOR a ON a.username = f.followed " +
+            "JOIN PICTURE pp ON pp.username = f.followed " +
+            "WHERE f.follower = ? %2$s " +
+            "ORDER BY pp.createdAt DESC, pp.imagePath DESC LIMIT ?)" +
+            ") feed " +
+            "JOIN PICTURE p ON p.imagePath = feed.imagePath " +
+            "LEFT JOIN PICTURE_STATS s ON s.imagePath = p.imagePath " +
+            "ORDER BY feed.createdAt DESC, feed.imagePath DESC LIMIT ?";
+
+    // Read-time merge over FOLLOW, used once a viewer scrolls past the bounded timeline
+    private static final String FOLLOW_QUERY = POST_COLUMNS +
+            "FROM FOLLOW f " +
+            "JOIN PICTURE p ON p.username = f.followed " +
+            "LEFT JOIN PICTURE_STATS s ON s.imagePath = p.imagePath " +
+            "WHERE f.follower = ? %1$s " +
+            "ORDER BY p.createdAt DESC, p.imagePath DESC LIMIT ?";
+
+    private static final String AFTER_CURSOR =
+            "AND (%1$s.createdAt < ? OR (%1$s.createdAt = ? AND %1$s.imagePath < ?))";
+
+    // Pass a null cursor for the first page
+    public Page loadPage(String viewer, Cursor after, int limit) throws SQLException {
+        // One extra row tells us whether another page exists
+        int wanted = limit + 1;
+        List<Post> posts = new ArrayList<>();
+        try (Connection conn = new DatabaseConnector().getConnection()) {
+            String timelineQuery = String.format(TIMELINE_QUERY, cursorClause("t", after), cursorClause("pp", after));
+            try (PreparedStatement stmt = conn.prepareStatement(timelineQuery)) {
+                int index = 1;
+                stmt.setString(index++, viewer);
+                stmt.setString(index++, viewer);
+                index = bindCursor(stmt, index, after);
+                stmt.setInt(index++, wanted);
+                stmt.setString(index++, viewer);
+                index = bindCursor(stmt, index, after);
+                stmt.setInt(index++, wanted);
+                stmt.setInt(index, wanted);
+                readPosts(stmt, posts);
+            }
+
+            // The timeline only keeps the newest entries, so continue below it by merging at read time
+            if (posts.size() < wanted) {
+                Cursor fallbackCursor = posts.isEmpty() ? after : cursorOf(posts.get(posts.size() - 1));
+                String followQuery = String.format(FOLLOW_QUERY, cursorClause("p", fallbackCursor));
+                try (PreparedStatement stmt = conn.prepareStatement(followQuery)) {
+                    int index = 1;
+                    stmt.setString(index++, viewer);
+                    stmt.setString(index++, viewer);
+                    index = bindCursor(stmt, index, fallbackCursor);
+                    stmt.setInt(index, wanted - posts.size());
+                    readPosts(stmt, posts);
+                }
+            }
+        }
+
+        boolean hasMore = posts.size() > limit;
+        if (hasMore) {
+            posts.remove(posts.size() - 1);
+        }
+        Cursor next = posts.isEmpty() ? null : cursorOf(posts.get(posts.size() - 1));
+        return new Page(posts, next, hasMore);
+    }
+
+    private static String cursorClause(String alias, Cursor cursor) {
+        return cursor != null ? String.format(AFTER_CURSOR, alias) : "";
+    }
+
+    private static int bindCursor(PreparedStatement stmt, int index, Cursor cursor) throws SQLException {
+        if (cursor == null) {
+            return index;
+        }
+        stmt.setTimestamp(index++, cursor.createdAt);
+        stmt.setTimestamp(index++, cursor.createdAt);
+        stmt.setString(index++, cursor.imagePath);
+        return index;
+    }
+
+    private static void readPosts(PreparedStatement stmt, List<Post> posts) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                posts.add(new Post(
+                        rs.getString("username"),
+                        rs.getString("caption"),
+                        rs.getInt("likes"),
+                        rs.getString("imagePath"),
+                        rs.getBoolean("liked"),
+                        rs.getTimestamp("createdAt")));
+            }
+        }
+    }
+
+    private static Cursor cursorOf(Post post) {
+        return new Cursor(post.getCreatedAt(), post.getImagePath());
+    }
+
+    public static class Cursor {
+        private final Timestamp createdAt;
+        private final String imagePath;
+
+        public Cursor(Timestamp createdAt, String imagePath) {
+            this.createdAt = createdAt;
+            this.imagePath = imagePath;
+        }
+
+        public Timestamp getCreatedAt() { return createdAt; }
+        public String getImagePath() { return imagePath; }
+    }
+
+    public static class Page {
+        private final List<Post> posts;
+        private final Cursor nextCursor;
+        private final boolean hasMore;
+
+        Page(List<Post> posts, Cursor nextCursor, boolean hasMore) {
+            this.posts = posts;
+            this.nextCursor = nextCursor;
+            this.hasMore = hasMore;
+        }
+
+        public List<Post> getPosts() { return posts; }
+        public Cursor getNextCursor() { return nextCursor; }
+        public boolean hasMore() { return hasMore; }
+    }
+}
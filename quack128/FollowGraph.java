@@ -0,0 +1,372 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory copy of FOLLOW. Usernames are interned to int ids and adjacency is kept in CSR form
+// (one offsets array plus one sorted target array per direction), with small sorted per-node
+// overlays for edges added since the last rebuild.
+public class FollowGraph {
+    private static final long RELOAD_MINUTES = Long.getLong("quack.graph.reloadMinutes", 10L);
+    private static final int MIN_OVERLAY_EDGES_BEFORE_REBUILD = 1_024;
+
+    private static volatile FollowGraph instance;
+    // Follows recorded while a reload is reading FOLLOW; replayed onto the new graph before it is published
+    private static List<String[]> followsDuringReload;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private Adjacency following;
+    private Adjacency followers;
+
+    private FollowGraph() {
+    }
+
+    public static FollowGraph get() throws SQLException {
+        FollowGraph graph = instance;
+        if (graph == null) {
+            synchronized (FollowGraph.class) {
+                graph = instance;
+                if (graph == null) {
+                    graph = load();
+                    instance = graph;
+                    scheduleReload();
+                }
+            }
+        }
+        return graph;
+    }
+
+    // Other clients write to FOLLOW too, so the graph is periodically replaced by a fresh load
+    private static void scheduleReload() {
+        BackgroundJobs.scheduleWithFixedDelay("follow-graph-reload", () -> {
+            synchronized (FollowGraph.class) {
+                followsDuringReload = new ArrayList<>();
+            }
+            FollowGraph graph;
+            try {
+                graph = load();
+            } catch (SQLException e) {
+                System.err.println("Error reloading follow graph: " + e.getMessage());
+                synchronized (FollowGraph.class) {
+                    followsDuringReload = null;
+                }
+                return;
+            }
+            synchronized (FollowGraph.class) {
+                // The load may or may not have seen these rows; addEdge ignores edges it already has
+                for (String[] edge : followsDuringReload) {
+                    graph.addEdge(edge[0], edge[1]);
+                }
+                followsDuringReload = null;
+                instance = graph;
+            }
+        }, RELOAD_MINUTES, RELOAD_MINUTES, TimeUnit.MINUTES);
+    }
+
+    // Call after the FOLLOW row has been committed
+    public static void recordFollow(String follower, String followed) throws SQLException {
+        FollowGraph graph = get();
+        synchronized (FollowGraph.class) {
+            if (followsDuringReload != null) {
+                followsDuringReload.add(new String[]{follower, followed});
+            }
+            graph = instance;
+        }
+        graph.addEdge(follower, followed);
+    }
+
+    private static FollowGraph load() throws SQLException {
+        FollowGraph graph = new FollowGraph();
+        int[] sources = new int[1024];
+        int[] targets = new int[1024];
+        int edges = 0;
+        try (Connection conn = new DatabaseConnector().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT follower, followed FROM FOLLOW");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                if (edges == sources.length) {
+                    sources = Arrays.copyOf(sources, edges * 2);
+                    targets = Arrays.copyOf(targets, edges * 2);
+                }
+                sources[edges] = graph.intern(rs.getString("follower"));
+                targets[edges] = graph.intern(rs.getString("followed"));
+                edges++;
+            }
+        }
+        int nodes = graph.names.size();
+        graph.following = Adjacency.build(nodes, sources, targets, edges);
+        graph.followers = Adjacency.build(nodes, targets, sources, edges);
+        return graph;
+    }
+
+    public boolean isFollowing(String follower, String followed) {
+        lock.readLock().lock();
+        try {
+            Integer from = ids.get(follower);
+            Integer to = ids.get(followed);
+            return from != null && to != null && following.contains(from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getFollowerCount(String username) {
+        return degree(followers, username);
+    }
+
+    public int getFollowingCount(String username) {
+        return degree(following, username);
+    }
+
+    public List<String> getFollowers(String username) {
+        return neighbourNames(followers, username);
+    }
+
+    public List<String> getFollowing(String username) {
+        return neighbourNames(following, username);
+    }
+
+    // Returns -1 for users without any follow edges
+    public int idOf(String username) {
+        lock.readLock().lock();
+        try {
+            Integer id = ids.get(username);
+            return id != null ? id : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String nameOf(int id) {
+        lock.readLock().lock();
+        try {
+            return names.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getNodeCount() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Sorted ids of the users the given user follows
+    public int[] followingIds(int id) {
+        lock.readLock().lock();
+        try {
+            return following.neighbours(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] followerIds(int id) {
+        lock.readLock().lock();
+        try {
+            return followers.neighbours(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addEdge(String follower, String followed) {
+        lock.writeLock().lock();
+        try {
+            int from = intern(follower);
+            int to = intern(followed);
+            if (following.contains(from, to)) {
+                return;
+            }
+            following.add(from, to);
+            followers.add(to, from);
+            if (following.shouldRebuild()) {
+                following = following.rebuild();
+                followers = followers.rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int degree(Adjacency adjacency, String username) {
+        lock.readLock().lock();
+        try {
+            Integer id = ids.get(username);
+            return id != null ? adjacency.degree(id) : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<String> neighbourNames(Adjacency adjacency, String username) {
+        lock.readLock().lock();
+        try {
+            Integer id = ids.get(username);
+            List<String> result = new ArrayList<>();
+            if (id != null) {
+                for (int neighbour : adjacency.neighbours(id)) {
+                    result.add(names.get(neighbour));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int intern(String username) {
+        Integer id = ids.get(username);
+        if (id == null) {
+            id = names.size();
+            ids.put(username, id);
+            names.add(username);
+        }
+        return id;
+    }
+
+    // One direction of the graph: CSR base plus per-node sorted overlays of newer edges
+    private static class Adjacency {
+        private static final int[] EMPTY = new int[0];
+
+        private final int[] offsets;
+        private final int[] targets;
+        private int[][] overlay;
+        private int[] overlaySize;
+        private int overlayEdges;
+
+        private Adjacency(int[] offsets, int[] targets, int nodes) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.overlay = new int[Math.max(nodes, 16)][];
+            this.overlaySize = new int[overlay.length];
+        }
+
+        static Adjacency build(int nodes, int[] sources, int[] destinations, int edges) {
+            int[] offsets = new int[nodes + 1];
+            for (int i = 0; i < edges; i++) {
+                offsets[sources[i] + 1]++;
+            }
+            for (int node = 0; node < nodes; node++) {
+                offsets[node + 1] += offsets[node];
+            }
+            int[] targets = new int[edges];
+            int[] cursor = Arrays.copyOf(offsets, nodes);
+            for (int i = 0; i < edges; i++) {
+                targets[cursor[sources[i]]++] = destinations[i];
+            }
+
+            // Sort each row and squeeze out duplicate edges
+            int[] compactOffsets = new int[nodes + 1];
+            int write = 0;
+            for (int node = 0; node < nodes; node++) {
+                int start = offsets[node];
+                int end = offsets[node + 1];
+                Arrays.sort(targets, start, end);
+                compactOffsets[node] = write;
+                for (int i = start; i < end; i++) {
+                    if (i == start || targets[i] != targets[i - 1]) {
+                        targets[write++] = targets[i];
+                    }
+                }
+            }
+            compactOffsets[nodes] = write;
+            return new Adjacency(compactOffsets, Arrays.copyOf(targets, write), nodes);
+        }
+
+        int baseNodes() {
+            return offsets.length - 1;
+        }
+
+        int degree(int node) {
+            int base = node < baseNodes() ? offsets[node + 1] - offsets[node] : 0;
+            return base + (node < overlaySize.length ? overlaySize[node] : 0);
+        }
+
+        boolean contains(int node, int target) {
+            if (node < baseNodes() && Arrays.binarySearch(targets, offsets[node], offsets[node + 1], target) >= 0) {
+                return true;
+            }
+            return node < overlaySize.length && overlaySize[node] > 0
+                    && Arrays.binarySearch(overlay[node], 0, overlaySize[node], target) >= 0;
+        }
+
+        int[] neighbours(int node) {
+            int baseStart = node < baseNodes() ? offsets[node] : 0;
+            int baseLength = node < baseNodes() ? offsets[node + 1] - baseStart : 0;
+            int extra = node < overlaySize.length ? overlaySize[node] : 0;
+            if (baseLength + extra == 0) {
+                return EMPTY;
+            }
+            int[] result = new int[baseLength + extra];
+            // Merge the two sorted runs
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < baseLength && j < extra) {
+                result[k++] = targets[baseStart + i] < overlay[node][j] ? targets[baseStart + i++] : overlay[node][j++];
+            }
+            while (i < baseLength) {
+                result[k++] = targets[baseStart + i++];
+            }
+            while (j < extra) {
+                result[k++] = overlay[node][j++];
+            }
+            return result;
+        }
+
+        void add(int node, int target) {
+            if (node >= overlay.length) {
+                int capacity = Math.max(node + 1, overlay.length * 2);
+                overlay = Arrays.copyOf(overlay, capacity);
+                overlaySize = Arrays.copyOf(overlaySize, capacity);
+            }
+            int[] row = overlay[node];
+            int size = overlaySize[node];
+            if (row == null) {
+                row = new int[4];
+            } else if (size == row.length) {
+                row = Arrays.copyOf(row, size * 2);
+            }
+            int insertAt = -(Arrays.binarySearch(row, 0, size, target) + 1);
+            System.arraycopy(row, insertAt, row, insertAt + 1, size - insertAt);
+            row[insertAt] = target;
+            overlay[node] = row;
+            overlaySize[node] = size + 1;
+            overlayEdges++;
+        }
+
+        boolean shouldRebuild() {
+            return overlayEdges > Math.max(MIN_OVERLAY_EDGES_BEFORE_REBUILD, targets.length / 8);
+        }
+
+        // Folds the overlays into a fresh CSR base
+        Adjacency rebuild() {
+            int nodes = Math.max(baseNodes(), overlay.length);
+            int[] newOffsets = new int[nodes + 1];
+            int[] newTargets = new int[targets.length + overlayEdges];
+            int write = 0;
+            for (int node = 0; node < nodes; node++) {
+                newOffsets[node] = write;
+                int[] row = neighbours(node);
+                System.arraycopy(row, 0, newTargets, write, row.length);
+                write += row.length;
+            }
+            newOffsets[nodes] = write;
+            return new Adjacency(newOffsets, newTargets, nodes);
+        }
+    }
+}
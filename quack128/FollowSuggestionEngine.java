@@ -0,0 +1,207 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+// "Who to follow": ranks friends-of-friends by how many of the user's followees follow them.
+// The two-hop walk over FollowGraph runs in parallel, samples very wide neighbourhoods and stops
+// at a fixed time budget; results are cached per user and patched in place when the user follows someone.
+public class FollowSuggestionEngine {
+    private static final int TOP_K = 20;
+    // Extra candidates kept past TOP_K so incremental updates have something to promote
+    private static final int RETAINED_CANDIDATES = TOP_K * 5;
+    private static final int MAX_FOLLOWEES_SCANNED = 2_000;
+    private static final int MAX_NEIGHBOURS_PER_FOLLOWEE = 500;
+    private static final long BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("quack.suggestions.budgetMillis", 50L));
+    private static final long CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final int MAX_CACHED_USERS = 1_000;
+
+    // Least recently used users are evicted first
+    private static final Map<String, CachedScores> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedScores> eldest) {
+            return size() > MAX_CACHED_USERS;
+        }
+    };
+
+    private FollowSuggestionEngine() {
+    }
+
+    public static List<Suggestion> suggest(String username, int limit) throws SQLException {
+        FollowGraph graph = FollowGraph.get();
+        CachedScores cached;
+        synchronized (CACHE) {
+            cached = CACHE.get(username);
+        }
+        // Scores are keyed by node ids, which a reloaded graph assigns afresh
+        if (cached == null || cached.graph != graph
+                || System.currentTimeMillis() - cached.computedAt > CACHE_TTL_MILLIS) {
+            cached = new CachedScores(graph, computeScores(graph, username));
+            synchronized (CACHE) {
+                CACHE.put(username, cached);
+            }
+        }
+        return cached.top(limit);
+    }
+
+    // Patches the cached scores instead of recomputing: the new followee stops being a candidate
+    // and each of their followees gains one mutual connection
+    public static void onFollow(String follower, String followed) throws SQLException {
+        CachedScores cached;
+        synchronized (CACHE) {
+            cached = CACHE.get(follower);
+        }
+        if (cached == null) {
+            return;
+        }
+        FollowGraph graph = FollowGraph.get();
+        if (cached.graph != graph) {
+            // Built against a graph that has since been reloaded; the next suggest() recomputes
+            synchronized (CACHE) {
+                CACHE.remove(follower, cached);
+            }
+            return;
+        }
+        int self = graph.idOf(follower);
+        int followedId = graph.idOf(followed);
+        if (self < 0 || followedId < 0) {
+            return;
+        }
+        int[] following = graph.followingIds(self);
+        int[] candidates = sample(graph.followingIds(followedId), MAX_NEIGHBOURS_PER_FOLLOWEE);
+        synchronized (cached) {
+            cached.scores.remove(followedId);
+            for (int candidate : candidates) {
+                if (candidate != self && Arrays.binarySearch(following, candidate) < 0) {
+                    cached.scores.merge(candidate, 1, Integer::sum);
+                }
+            }
+            cached.prune();
+        }
+    }
+
+    private static Map<Integer, Integer> computeScores(FollowGraph graph, String username) {
+        int self = graph.idOf(username);
+        if (self < 0) {
+            return new HashMap<>();
+        }
+        long deadline = System.nanoTime() + BUDGET_NANOS;
+        int[] following = graph.followingIds(self);
+        int[] followees = sample(following, MAX_FOLLOWEES_SCANNED);
+        AtomicIntegerArray scores = new AtomicIntegerArray(graph.getNodeCount());
+
+        int chunks = Math.max(1, Math.min(followees.length, Runtime.getRuntime().availableProcessors() * 4));
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            for (int i = chunk; i < followees.length; i += chunks) {
+                if (System.nanoTime() > deadline) {
+                    return;
+                }
+                for (int candidate : sample(graph.followingIds(followees[i]), MAX_NEIGHBOURS_PER_FOLLOWEE)) {
+                    if (candidate != self && candidate < scores.length()
+                            && Arrays.binarySearch(following, candidate) < 0) {
+                        scores.incrementAndGet(candidate);
+                    }
+                }
+            }
+        });
+
+        PriorityQueue<int[]> best = new PriorityQueue<>((a, b) -> Integer.compare(a[1], b[1]));
+        for (int candidate = 0; candidate < scores.length(); candidate++) {
+            int score = scores.get(candidate);
+            if (score == 0) {
+                continue;
+            }
+            if (best.size() < RETAINED_CANDIDATES) {
+                best.add(new int[]{candidate, score});
+            } else if (score > best.peek()[1]) {
+                best.poll();
+                best.add(new int[]{candidate, score});
+            }
+        }
+        Map<Integer, Integer> result = new HashMap<>();
+        for (int[] entry : best) {
+            result.put(entry[0], entry[1]);
+        }
+        return result;
+    }
+
+    // Evenly spaced subset, so very wide neighbourhoods cost a bounded amount of work
+    private static int[] sample(int[] ids, int max) {
+        if (ids.length <= max) {
+            return ids;
+        }
+        int[] sampled = new int[max];
+        double step = (double) ids.length / max;
+        for (int i = 0; i < max; i++) {
+            sampled[i] = ids[(int) (i * step)];
+        }
+        return sampled;
+    }
+
+    public static class Suggestion {
+        private final String username;
+        private final int mutualCount;
+
+        Suggestion(String username, int mutualCount) {
+            this.username = username;
+            this.mutualCount = mutualCount;
+        }
+
+        public String getUsername() { return username; }
+        public int getMutualCount() { return mutualCount; }
+    }
+
+    private static class CachedScores {
+        // The graph whose node ids the scores are keyed by
+        private final FollowGraph graph;
+        private final Map<Integer, Integer> scores;
+        private final long computedAt = System.currentTimeMillis();
+
+        CachedScores(FollowGraph graph, Map<Integer, Integer> scores) {
+            this.graph = graph;
+            this.scores = scores;
+        }
+
+        synchronized List<Suggestion> top(int limit) {
+            List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(scores.entrySet());
+            entries.sort(ranking(graph));
+            List<Suggestion> result = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+                result.add(new Suggestion(graph.nameOf(entry.getKey()), entry.getValue()));
+            }
+            return Collections.unmodifiableList(result);
+        }
+
+        void prune() {
+            if (scores.size() <= RETAINED_CANDIDATES) {
+                return;
+            }
+            List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(scores.entrySet());
+            entries.sort(ranking(graph));
+            for (Map.Entry<Integer, Integer> entry : entries.subList(RETAINED_CANDIDATES, entries.size())) {
+                scores.remove(entry.getKey());
+            }
+        }
+
+        // Most mutual connections first, then the more followed account
+        private static Comparator<Map.Entry<Integer, Integer>> ranking(FollowGraph graph) {
+            return (a, b) -> {
+                int byScore = Integer.compare(b.getValue(), a.getValue());
+                if (byScore != 0) {
+                    return byScore;
+                }
+                return Integer.compare(graph.getFollowerCount(graph.nameOf(b.getKey())),
+                        graph.getFollowerCount(graph.nameOf(a.getKey())));
+            };
+        }
+    }
+}
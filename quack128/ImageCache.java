@@ -0,0 +1,199 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Application-wide cache of decoded pictures keyed by (path, variant), shared by every screen so
+// navigating back and forth does not decode the same files again. Eviction is least recently used,
+// bounded by the decoded size in bytes. Concurrent misses for the same key wait on a single load.
+// Originals are content-addressed in BlobStore and never rewritten in place, so entries never go stale.
+public class ImageCache {
+    private static final long MAX_BYTES = Long.getLong("quack.images.cacheBytes", 64L * 1024 * 1024);
+    // 0 turns the periodic statistics line off
+    private static final long STATS_INTERVAL_MINUTES = Long.getLong("quack.images.statsMinutes", 0L);
+
+    private static final LinkedHashMap<Key, BufferedImage> ENTRIES = new LinkedHashMap<>(256, 0.75f, true);
+    private static final Map<Key, CompletableFuture<BufferedImage>> IN_FLIGHT = new ConcurrentHashMap<>();
+    private static long currentBytes;
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong coalesced = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private ImageCache() {
+    }
+
+    // Cached image or null, without loading; cheap enough to call on the EDT. A miss is not counted
+    // here but by the get() that loads the image, so each request counts once.
+    public static BufferedImage getIfPresent(String imagePath, Thumbnails.Variant variant) {
+        BufferedImage cached = peek(imagePath, variant);
+        if (cached != null) {
+            hits.incrementAndGet();
+        }
+        return cached;
+    }
+
+    // Like getIfPresent but left out of the statistics, for cell renderers that look up on every paint
+    public static BufferedImage peek(String imagePath, Thumbnails.Variant variant) {
+        synchronized (ENTRIES) {
+            return ENTRIES.get(new Key(imagePath, variant));
+        }
+    }
+
+    public static BufferedImage get(String imagePath, Thumbnails.Variant variant) throws IOException {
+        Key key = new Key(imagePath, variant);
+        synchronized (ENTRIES) {
+            BufferedImage cached = ENTRIES.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        CompletableFuture<BufferedImage> load = new CompletableFuture<>();
+        CompletableFuture<BufferedImage> existing = IN_FLIGHT.putIfAbsent(key, load);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+        try {
+            BufferedImage image;
+            synchronized (ENTRIES) {
+                // Another thread may have finished loading between the lookup above and claiming the key
+                image = ENTRIES.get(key);
+            }
+            if (image != null) {
+                hits.incrementAndGet();
+                load.complete(image);
+                return image;
+            }
+            misses.incrementAndGet();
+            image = Thumbnails.load(imagePath, variant);
+            put(key, image);
+            load.complete(image);
+            return image;
+        } catch (IOException | RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            IN_FLIGHT.remove(key, load);
+        }
+    }
+
+    private static BufferedImage await(CompletableFuture<BufferedImage> load) throws IOException {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for image load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static void put(Key key, BufferedImage image) {
+        long size = sizeOf(image);
+        if (size > MAX_BYTES) {
+            return;
+        }
+        synchronized (ENTRIES) {
+            BufferedImage previous = ENTRIES.put(key, image);
+            if (previous != null) {
+                currentBytes -= sizeOf(previous);
+            }
+            currentBytes += size;
+            Iterator<Map.Entry<Key, BufferedImage>> eldest = ENTRIES.entrySet().iterator();
+            while (currentBytes > MAX_BYTES && eldest.hasNext()) {
+                currentBytes -= sizeOf(eldest.next().getValue());
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    public static void scheduleStatsLogging() {
+        if (STATS_INTERVAL_MINUTES <= 0) {
+            return;
+        }
+        BackgroundJobs.scheduleWithFixedDelay("image-cache-stats",
+                () -> System.err.println("Image cache: " + getStats()),
+                STATS_INTERVAL_MINUTES, STATS_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static Stats getStats() {
+        synchronized (ENTRIES) {
+            return new Stats(ENTRIES.size(), currentBytes, hits.get(), misses.get(), coalesced.get(), evictions.get());
+        }
+    }
+
+    private static class Key {
+        private final String imagePath;
+        private final Thumbnails.Variant variant;
+
+        Key(String imagePath, Thumbnails.Variant variant) {
+            this.imagePath = imagePath;
+            this.variant = variant;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return imagePath.equals(other.imagePath) && variant == other.variant;
+        }
+
+        @Override
+        public int hashCode() {
+            return imagePath.hashCode() * 31 + variant.hashCode();
+        }
+    }
+
+    public static class Stats {
+        private final int entries;
+        private final long bytes;
+        private final long hits;
+        private final long misses;
+        private final long coalesced;
+        private final long evictions;
+
+        Stats(int entries, long bytes, long hits, long misses, long coalesced, long evictions) {
+            this.entries = entries;
+            this.bytes = bytes;
+            this.hits = hits;
+            this.misses = misses;
+            this.coalesced = coalesced;
+            this.evictions = evictions;
+        }
+
+        public int getEntries() { return entries; }
+        public long getBytes() { return bytes; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getCoalesced() { return coalesced; }
+        public long getEvictions() { return evictions; }
+
+        @Override
+        public String toString() {
+            return "entries=" + entries + ", bytes=" + bytes + "/" + MAX_BYTES + ", hits=" + hits
+                    + ", misses=" + misses + ", coalesced=" + coalesced + ", evictions=" + evictions;
+        }
+    }
+}
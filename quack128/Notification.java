@@ -0,0 +1,40 @@
+import java.util.List;
+
+// A rolled-up entry of a user's notification inbox
+public class Notification {
+    private final long id;
+    private final String text;
+    private final String sourceType;
+    private final String sourceId;
+    private final String timestamp;
+    private final String bucketStart;
+    private final int actorCount;
+    private final List<String> recentActors;
+
+    public Notification(long id, String text, String sourceType, String sourceId, String timestamp,
+                        String bucketStart, int actorCount, List<String> recentActors) {
+        this.id = id;
+        this.text = text;
+        this.sourceType = sourceType;
+        this.sourceId = sourceId;
+        this.timestamp = timestamp;
+        this.bucketStart = bucketStart;
+        this.actorCount = actorCount;
+        this.recentActors = recentActors;
+    }
+
+    public long getId() { return id; }
+    public String getText() { return text; }
+    public String getSourceType() { return sourceType; }
+    public String getSourceId() { return sourceId; }
+    public String getTimestamp() { return timestamp; }
+    public int getActorCount() { return actorCount; }
+    // Most recent first
+    public List<String> getRecentActors() { return recentActors; }
+
+    // Entries with the same key are successive versions of one rolled-up group
+    public boolean isSameGroup(Notification other) {
+        return sourceType.equals(other.sourceType) && sourceId.equals(other.sourceId)
+                && bucketStart.equals(other.bucketStart);
+    }
+}
@@ -0,0 +1,244 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Rolls notifications up into one NOTIFICATION_GROUP row per (recipient, sourceType, sourceId, time bucket),
+// e.g. "Lorin and 36 others liked your picture", and folds legacy NOTIFICATION rows into those groups
+public class NotificationAggregator {
+    private static final long BUCKET_MILLIS = TimeUnit.HOURS.toMillis(Long.getLong("quack.notifications.bucketHours", 24L));
+    private static final int RECENT_ACTOR_SAMPLE = 3;
+    private static final int COMPACTION_BATCH = 1_000;
+
+    private NotificationAggregator() {
+    }
+
+    public static Collection<Group> aggregate(List<NotificationEvent> events) {
+        Map<String, Group> groups = new LinkedHashMap<>();
+        for (NotificationEvent event : events) {
+            Timestamp bucketStart = bucketStart(event.getTimestamp());
+            String key = event.getRecipient() + '\u0000' + event.getSourceType() + '\u0000'
+                    + event.getSourceId() + '\u0000' + bucketStart.getTime();
+            groups.computeIfAbsent(key, k -> new Group(event.getRecipient(), event.getSourceType(),
+                    event.getSourceId(), bucketStart)).add(event);
+        }
+        return groups.values();
+    }
+
+    // Merges groups into NOTIFICATION_GROUP with one batched upsert. Every written group takes a fresh
+    // groupId from NOTIFICATION_GROUP_SEQUENCE, so an updated group sorts as the newest entry and shows up
+    // in incremental inbox refreshes.
+    public static void merge(Connection conn, Collection<Group> groups) throws SQLException {
+        if (groups.isEmpty()) {
+            return;
+        }
+        long nextId = reserveGroupIds(conn, groups.size());
+        // Assignments run left to right, so actorCount is worked out before recentActors changes
+        String upsert = "INSERT INTO NOTIFICATION_GROUP " +
+                "(groupId, username, sourceType, sourceId, bucketStart, actorCount, eventCount, recentActors, text, timestamp) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE " +
+                "actorCount = actorCount + VALUES(actorCount) - (" + overlapCount() + "), " +
+                "eventCount = eventCount + VALUES(eventCount), " +
+                "recentActors = SUBSTRING_INDEX(CONCAT_WS(',', NULLIF(VALUES(recentActors), ''), " + olderActors() + "), ',', "
+                + RECENT_ACTOR_SAMPLE + "), " +
+                "groupId = VALUES(groupId), " +
+                "text = VALUES(text), " +
+                "timestamp = GREATEST(timestamp, VALUES(timestamp))";
+        try (PreparedStatement stmt = conn.prepareStatement(upsert)) {
+            for (Group group : groups) {
+                stmt.setLong(1, nextId++);
+                stmt.setString(2, group.recipient);
+                stmt.setString(3, group.sourceType);
+                stmt.setString(4, group.sourceId);
+                stmt.setTimestamp(5, group.bucketStart);
+                stmt.setInt(6, group.actorCount);
+                stmt.setInt(7, group.eventCount);
+                stmt.setString(8, String.join(",", group.recentActors));
+                stmt.setString(9, group.text);
+                stmt.setTimestamp(10, group.lastTimestamp);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // Returns the first of count consecutive ids; the row lock is held until the caller commits
+    private static long reserveGroupIds(Connection conn, int count) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE NOTIFICATION_GROUP_SEQUENCE SET lastId = LAST_INSERT_ID(lastId + ?)")) {
+            stmt.setInt(1, count);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT LAST_INSERT_ID()");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1) - count + 1;
+        }
+    }
+
+    // Actors of the new sample that are already in the stored sample; they acted before and are not recounted
+    private static String overlapCount() {
+        List<String> terms = new ArrayList<>();
+        for (int i = 1; i <= RECENT_ACTOR_SAMPLE; i++) {
+            terms.add("(" + hasElement("VALUES(recentActors)", i) + " AND FIND_IN_SET("
+                    + element("VALUES(recentActors)", i) + ", COALESCE(recentActors, '')) > 0)");
+        }
+        return String.join(" + ", terms);
+    }
+
+    // The stored sample without the actors the new sample already lists, oldest kept last
+    private static String olderActors() {
+        List<String> terms = new ArrayList<>();
+        for (int i = 1; i <= RECENT_ACTOR_SAMPLE; i++) {
+            terms.add("IF(" + hasElement("recentActors", i) + " AND FIND_IN_SET(" + element("recentActors", i)
+                    + ", VALUES(recentActors)) = 0, " + element("recentActors", i) + ", NULL)");
+        }
+        return String.join(", ", terms);
+    }
+
+    private static String element(String list, int position) {
+        return "SUBSTRING_INDEX(SUBSTRING_INDEX(" + list + ", ',', " + position + "), ',', -1)";
+    }
+
+    private static String hasElement(String list, int position) {
+        return "(COALESCE(" + list + ", '') <> '' AND " + position + " <= 1 + LENGTH(" + list + ") - LENGTH(REPLACE("
+                + list + ", ',', '')))";
+    }
+
+    // Folds the oldest batch of raw NOTIFICATION rows into groups; returns how many rows were folded
+    public static int compact(Connection conn) throws SQLException {
+        List<NotificationEvent> events = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        String select = "SELECT notificationId, username, text, sourceType, sourceId, timestamp FROM NOTIFICATION " +
+                "ORDER BY notificationId LIMIT ?";
+        try (PreparedStatement stmt = conn.prepareStatement(select)) {
+            stmt.setInt(1, COMPACTION_BATCH);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong("notificationId");
+                    ids.add(id);
+                    String text = rs.getString("text");
+                    String sourceType = rs.getString("sourceType");
+                    String sourceId = rs.getString("sourceId");
+                    if (isSystemRow(sourceType, sourceId)) {
+                        // No actor, and keyed by the row's own id so two system messages never fold into one
+                        // group; the inbox shows a single-actor follow group by its text
+                        events.add(new NotificationEvent(rs.getString("username"), null, sourceType,
+                                sourceId + ":" + id, text, rs.getTimestamp("timestamp")));
+                    } else {
+                        events.add(new NotificationEvent(rs.getString("username"), legacyActor(sourceType, sourceId, text),
+                                sourceType, sourceId, text, rs.getTimestamp("timestamp")));
+                    }
+                }
+            }
+        }
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        merge(conn, aggregate(events));
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM NOTIFICATION WHERE notificationId = ?")) {
+            for (Long id : ids) {
+                stmt.setLong(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        return ids.size();
+    }
+
+    public static void scheduleCompaction() {
+        BackgroundJobs.scheduleWithFixedDelay("notification-compaction", () -> {
+            try (Connection conn = new DatabaseConnector().getConnection()) {
+                int folded;
+                do {
+                    conn.setAutoCommit(false);
+                    folded = compact(conn);
+                    conn.commit();
+                } while (folded == COMPACTION_BATCH);
+            } catch (SQLException e) {
+                System.err.println("Error compacting notifications: " + e.getMessage());
+            }
+        }, 0, 5, TimeUnit.MINUTES);
+    }
+
+    private static Timestamp bucketStart(Timestamp timestamp) {
+        long millis = timestamp.getTime();
+        return new Timestamp(millis - Math.floorMod(millis, BUCKET_MILLIS));
+    }
+
+    // The after_user_insert trigger and LogUserActivity write 'follow' rows with sourceId '0' and no actor
+    private static boolean isSystemRow(String sourceType, String sourceId) {
+        return "follow".equals(sourceType) && "0".equals(sourceId);
+    }
+
+    // Raw rows have no actor column; like/comment texts start with the actor's username
+    private static String legacyActor(String sourceType, String sourceId, String text) {
+        if ("follow".equals(sourceType)) {
+            return sourceId;
+        }
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        return text.trim().split("\\s+", 2)[0];
+    }
+
+    public static class Group {
+        private final String recipient;
+        private final String sourceType;
+        private final String sourceId;
+        private final Timestamp bucketStart;
+        private int actorCount;
+        // Every folded event, repeats included; NotificationTrends reports this
+        private int eventCount;
+        // Most recent first
+        private final LinkedList<String> recentActors = new LinkedList<>();
+        private String text;
+        private Timestamp lastTimestamp;
+
+        Group(String recipient, String sourceType, String sourceId, Timestamp bucketStart) {
+            this.recipient = recipient;
+            this.sourceType = sourceType;
+            this.sourceId = sourceId;
+            this.bucketStart = bucketStart;
+        }
+
+        void add(NotificationEvent event) {
+            eventCount++;
+            noteActor(event.getActor());
+            text = event.getText();
+            if (lastTimestamp == null || event.getTimestamp().after(lastTimestamp)) {
+                lastTimestamp = event.getTimestamp();
+            }
+        }
+
+        // Repeat actions by someone still in the recent-actor sample are not counted twice;
+        // beyond the sample the count is approximate
+        private void noteActor(String actor) {
+            if (actor == null) {
+                actorCount++;
+                return;
+            }
+            if (!recentActors.remove(actor)) {
+                actorCount++;
+            }
+            recentActors.addFirst(actor);
+            trimSample();
+        }
+
+        private void trimSample() {
+            while (recentActors.size() > RECENT_ACTOR_SAMPLE) {
+                recentActors.removeLast();
+            }
+        }
+    }
+}
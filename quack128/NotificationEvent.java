@@ -0,0 +1,32 @@
+import java.sql.Timestamp;
+
+// A notification waiting to be written by NotificationWriter
+public class NotificationEvent {
+    private final String recipient;
+    private final String actor;
+    private final String sourceType;
+    private final String sourceId;
+    private final String text;
+    private final Timestamp timestamp;
+
+    public NotificationEvent(String recipient, String actor, String sourceType, String sourceId, String text) {
+        this(recipient, actor, sourceType, sourceId, text, new Timestamp(System.currentTimeMillis()));
+    }
+
+    public NotificationEvent(String recipient, String actor, String sourceType, String sourceId, String text,
+                             Timestamp timestamp) {
+        this.recipient = recipient;
+        this.actor = actor;
+        this.sourceType = sourceType;
+        this.sourceId = sourceId;
+        this.text = text;
+        this.timestamp = timestamp;
+    }
+
+    public String getRecipient() { return recipient; }
+    public String getActor() { return actor; }
+    public String getSourceType() { return sourceType; }
+    public String getSourceId() { return sourceId; }
+    public String getText() { return text; }
+    public Timestamp getTimestamp() { return timestamp; }
+}
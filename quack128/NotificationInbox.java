@@ -0,0 +1,148 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A user's rolled-up notifications, most recently active first. Older entries are fetched in keyset pages
+// on groupId and reopening the inbox only fetches groups created or updated since the newest one loaded.
+public class NotificationInbox {
+    public static final int PAGE_SIZE = 20;
+    private static final int MAX_REFRESH = 200;
+
+    private static final String SELECT_COLUMNS =
+            "SELECT groupId, text, sourceType, sourceId, timestamp, bucketStart, actorCount, recentActors " +
+            "FROM NOTIFICATION_GROUP WHERE username = ? ";
+
+    private static final Map<String, NotificationInbox> INBOXES = new ConcurrentHashMap<>();
+
+    private final String username;
+    private final List<Notification> items = new ArrayList<>();
+    private boolean loaded;
+    private boolean hasMore = true;
+
+    private NotificationInbox(String username) {
+        this.username = username;
+    }
+
+    public static NotificationInbox forUser(String username) {
+        return INBOXES.computeIfAbsent(username, NotificationInbox::new);
+    }
+
+    // Loads the first page, or on later calls only what arrived since; returns the newly added entries
+    public synchronized List<Notification> refresh() throws SQLException {
+        if (!loaded) {
+            loadOlder();
+            loaded = true;
+            return new ArrayList<>(items);
+        }
+        long newestId = items.isEmpty() ? 0 : items.get(0).getId();
+        List<Notification> fresh = query(SELECT_COLUMNS + "AND groupId > ? ORDER BY groupId DESC LIMIT ?",
+                newestId, MAX_REFRESH + 1);
+        if (fresh.size() > MAX_REFRESH) {
+            // Too much arrived to stitch onto what we have without a gap, so start over from the newest page
+            items.clear();
+            hasMore = true;
+            loadOlder();
+            return new ArrayList<>(items);
+        }
+        // An updated group comes back under a new id, replacing the version we already hold
+        items.removeIf(item -> fresh.stream().anyMatch(item::isSameGroup));
+        items.addAll(0, fresh);
+        return fresh;
+    }
+
+    // Appends the next page of older notifications; returns the entries that were added
+    public synchronized List<Notification> loadOlder() throws SQLException {
+        if (!hasMore) {
+            return Collections.emptyList();
+        }
+        List<Notification> page;
+        if (items.isEmpty()) {
+            page = query(SELECT_COLUMNS + "ORDER BY groupId DESC LIMIT ?", null, PAGE_SIZE + 1);
+        } else {
+            long oldestId = items.get(items.size() - 1).getId();
+            page = query(SELECT_COLUMNS + "AND groupId < ? ORDER BY groupId DESC LIMIT ?",
+                    oldestId, PAGE_SIZE + 1);
+        }
+        hasMore = page.size() > PAGE_SIZE;
+        if (hasMore) {
+            page.remove(page.size() - 1);
+        }
+        items.addAll(page);
+        return page;
+    }
+
+    public synchronized List<Notification> getItems() {
+        return new ArrayList<>(items);
+    }
+
+    public synchronized boolean hasMore() {
+        return hasMore;
+    }
+
+    public int countUnread() throws SQLException {
+        String query = "SELECT COUNT(*) FROM NOTIFICATION_GROUP n WHERE n.username = ? AND n.groupId > " +
+                "COALESCE((SELECT m.lastReadId FROM NOTIFICATION_READ_MARKER m WHERE m.username = ?), 0)";
+        try (Connection conn = new DatabaseConnector().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, username);
+            stmt.setString(2, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    public void markAllRead() throws SQLException {
+        long newestId;
+        synchronized (this) {
+            if (items.isEmpty()) {
+                return;
+            }
+            newestId = items.get(0).getId();
+        }
+        String query = "INSERT INTO NOTIFICATION_READ_MARKER (username, lastReadId) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE lastReadId = GREATEST(lastReadId, VALUES(lastReadId))";
+        try (Connection conn = new DatabaseConnector().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, username);
+            stmt.setLong(2, newestId);
+            stmt.executeUpdate();
+        }
+    }
+
+    private List<Notification> query(String query, Long boundaryId, int limit) throws SQLException {
+        List<Notification> result = new ArrayList<>();
+        try (Connection conn = new DatabaseConnector().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            int index = 1;
+            stmt.setString(index++, username);
+            if (boundaryId != null) {
+                stmt.setLong(index++, boundaryId);
+            }
+            stmt.setInt(index, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String recentActors = rs.getString("recentActors");
+                    result.add(new Notification(
+                            rs.getLong("groupId"),
+                            rs.getString("text"),
+                            rs.getString("sourceType"),
+                            rs.getString("sourceId"),
+                            rs.getString("timestamp"),
+                            rs.getString("bucketStart"),
+                            rs.getInt("actorCount"),
+                            recentActors == null || recentActors.isEmpty()
+                                    ? Collections.emptyList() : Arrays.asList(recentActors.split(","))));
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,112 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Writes notifications off the caller's thread: events go into a bounded queue that a background
+// writer drains, rolls up with NotificationAggregator and writes to NOTIFICATION_GROUP in JDBC batches
+public class NotificationWriter {
+    private static final int QUEUE_CAPACITY = Integer.getInteger("quack.notifications.queueCapacity", 10_000);
+    private static final int FLUSH_SIZE = Integer.getInteger("quack.notifications.flushSize", 100);
+    private static final long FLUSH_INTERVAL_MILLIS = Long.getLong("quack.notifications.flushIntervalMillis", 250L);
+    private static final long ENQUEUE_TIMEOUT_MILLIS = 100;
+    private static final int FLUSH_ATTEMPTS = 2;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5_000;
+
+    private static final BlockingQueue<NotificationEvent> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static Thread writerThread;
+    private static volatile boolean running;
+
+    private NotificationWriter() {
+    }
+
+    public static void enqueue(NotificationEvent event) {
+        ensureStarted();
+        try {
+            if (!QUEUE.offer(event, ENQUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                System.err.println("Notification queue is full, dropping notification for " + event.getRecipient());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static synchronized void ensureStarted() {
+        if (writerThread != null) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(NotificationWriter::drainLoop, "quack-notification-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        BackgroundJobs.runOnShutdown(NotificationWriter::shutdown);
+    }
+
+    // Stops accepting work once the queue is empty and waits for the final batch to be written
+    public static void shutdown() {
+        Thread thread;
+        synchronized (NotificationWriter.class) {
+            thread = writerThread;
+            running = false;
+        }
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!QUEUE.isEmpty()) {
+            System.err.println("Discarding " + QUEUE.size() + " unwritten notification(s) at shutdown");
+        }
+    }
+
+    private static void drainLoop() {
+        List<NotificationEvent> batch = new ArrayList<>(FLUSH_SIZE);
+        while (running || !QUEUE.isEmpty()) {
+            try {
+                NotificationEvent first = QUEUE.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS);
+                while (batch.size() < FLUSH_SIZE) {
+                    long remaining = deadline - System.nanoTime();
+                    NotificationEvent next = remaining > 0 ? QUEUE.poll(remaining, TimeUnit.NANOSECONDS) : QUEUE.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutdown is signalled through the running flag; keep draining
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private static void flush(List<NotificationEvent> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = new DatabaseConnector().getConnection()) {
+                conn.setAutoCommit(false);
+                NotificationAggregator.merge(conn, NotificationAggregator.aggregate(batch));
+                conn.commit();
+                return;
+            } catch (SQLException e) {
+                // The compactor may be merging into the same group, so a deadlock is worth one retry
+                if (attempt >= FLUSH_ATTEMPTS) {
+                    System.err.println("Error writing " + batch.size() + " notification(s): " + e.getMessage());
+                    return;
+                }
+            }
+        }
+    }
+}
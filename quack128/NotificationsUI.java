@@ -1,82 +1,181 @@
 import javax.swing.*;
 import java.awt.*;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 
-public class NotificationsUI extends JFrame {
+public class NotificationsUI extends JPanel implements AppShell.Screen {
 
     private static final int WIDTH = 300;
-    private static final int HEIGHT = 500;
-    private static final int NAV_ICON_SIZE = 20;
     private final User currentUser;
+    private final NotificationInbox inbox;
+    private JPanel contentPanel;
+    private JScrollPane scrollPane;
+    private JLabel headerLabel;
+    private SwingWorker<List<Notification>, Void> olderWorker;
+    private SwingWorker<Integer, Void> refreshWorker;
 
     public NotificationsUI(User user) {
         currentUser = user;
-        setTitle("Notifications");
-        setSize(WIDTH, HEIGHT);
-        setMinimumSize(new Dimension(WIDTH, HEIGHT));
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        inbox = NotificationInbox.forUser(user.getUsername());
         setLayout(new BorderLayout());
         initializeUI();
     }
 
     private void initializeUI() {
         JPanel headerPanel = createHeaderPanel();
-        JPanel navigationPanel = createNavigationPanel();
 
-        JPanel contentPanel = new JPanel();
+        contentPanel = new JPanel();
         contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
-        JScrollPane scrollPane = new JScrollPane(contentPanel);
+        scrollPane = new JScrollPane(contentPanel);
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> loadOlderIfNearBottom());
 
-        try (Connection conn = new DatabaseConnector().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT text, sourceType, sourceId, timestamp FROM NOTIFICATION WHERE username = ? ORDER BY timestamp DESC")) {
-            stmt.setString(1, currentUser.getUsername());
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String text = rs.getString("text");
-                    String sourceType = rs.getString("sourceType");
-                    String sourceId = rs.getString("sourceId");
-                    String timestamp = rs.getString("timestamp");
-                    String notificationMessage = formatNotificationMessage(text, sourceType, sourceId, timestamp);
-
-                    JPanel notificationPanel = new JPanel(new BorderLayout());
-                    notificationPanel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
-                    JLabel notificationLabel = new JLabel(notificationMessage);
-                    notificationPanel.add(notificationLabel, BorderLayout.CENTER);
-
-                    contentPanel.add(notificationPanel);
+        // The first load goes through the same worker as later visits, so building the screen never waits on the database
+        onShow();
+
+        add(headerPanel, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+    }
+
+    @Override
+    public String getTitle() {
+        return "Notifications";
+    }
+
+    // The inbox only fetches groups created or updated since its newest one, so this is cheap when nothing happened
+    @Override
+    public void onShow() {
+        if (refreshWorker != null) {
+            return;
+        }
+        refreshWorker = new SwingWorker<>() {
+            private List<Notification> fresh;
+
+            @Override
+            protected Integer doInBackground() throws SQLException {
+                int unread = inbox.countUnread();
+                fresh = inbox.refresh();
+                inbox.markAllRead();
+                return unread;
+            }
+
+            @Override
+            protected void done() {
+                refreshWorker = null;
+                try {
+                    int unread = get();
+                    headerLabel.setText(unread > 0 ? "Notifications 🐥 (" + unread + " new)" : "Notifications 🐥");
+                    if (!fresh.isEmpty()) {
+                        showItems();
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error refreshing notifications: " + e.getMessage());
                 }
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading notifications: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-            System.err.println("Error loading notifications: " + e.getMessage());
+        };
+        refreshWorker.execute();
+    }
+
+    @Override
+    public void onReselect() {
+        scrollPane.getVerticalScrollBar().setValue(0);
+        onShow();
+    }
+
+    // Refreshed groups replace their older versions anywhere in the list, so the rows are rebuilt; the
+    // scroll offset is kept unless the list is at the top, where the new entries should be seen
+    private void showItems() {
+        JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+        int offset = scrollBar.getValue();
+        int oldHeight = contentPanel.getPreferredSize().height;
+        contentPanel.removeAll();
+        for (Notification notification : inbox.getItems()) {
+            contentPanel.add(createNotificationPanel(notification));
+        }
+        contentPanel.revalidate();
+        contentPanel.repaint();
+        if (offset > 0) {
+            scrollPane.getViewport().validate();
+            scrollBar.setValue(offset + contentPanel.getPreferredSize().height - oldHeight);
         }
+    }
 
-        add(headerPanel, BorderLayout.NORTH);
-        add(scrollPane, BorderLayout.CENTER);
-        add(navigationPanel, BorderLayout.SOUTH);
+    private JPanel createNotificationPanel(Notification notification) {
+        String notificationMessage = formatNotificationMessage(notification);
+
+        JPanel notificationPanel = new JPanel(new BorderLayout());
+        notificationPanel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        JLabel notificationLabel = new JLabel(notificationMessage);
+        notificationPanel.add(notificationLabel, BorderLayout.CENTER);
+        return notificationPanel;
+    }
+
+    private void loadOlderIfNearBottom() {
+        JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+        int distanceToBottom = scrollBar.getMaximum() - (scrollBar.getValue() + scrollBar.getVisibleAmount());
+        if (olderWorker != null || !inbox.hasMore() || distanceToBottom > scrollPane.getViewport().getHeight()) {
+            return;
+        }
+        olderWorker = new SwingWorker<>() {
+            @Override
+            protected List<Notification> doInBackground() throws SQLException {
+                return inbox.loadOlder();
+            }
+
+            @Override
+            protected void done() {
+                olderWorker = null;
+                try {
+                    for (Notification notification : get()) {
+                        contentPanel.add(createNotificationPanel(notification));
+                    }
+                    contentPanel.revalidate();
+                    contentPanel.repaint();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error loading older notifications: " + e.getMessage());
+                }
+            }
+        };
+        olderWorker.execute();
     }
 
-    private String formatNotificationMessage(String text, String sourceType, String sourceId, String timestamp) {
-        String elapsedTime = getElapsedTime(timestamp);
-        switch (sourceType) {
+    private String formatNotificationMessage(Notification notification) {
+        String elapsedTime = getElapsedTime(notification.getTimestamp());
+        String actors = formatActors(notification);
+        switch (notification.getSourceType()) {
             case "like":
-                return sourceId + " liked your picture - " + elapsedTime + " ago";
+                return actors + " liked your picture - " + elapsedTime + " ago";
             case "comment":
-                return sourceId + " commented on your picture - " + elapsedTime + " ago";
+                return actors + " commented on your picture - " + elapsedTime + " ago";
             case "follow":
-                return text + " - " + elapsedTime + " ago";
+                if (notification.getActorCount() > 1) {
+                    return actors + " started following you - " + elapsedTime + " ago";
+                }
+                return notification.getText() + " - " + elapsedTime + " ago";
             default:
-                return text + " - " + elapsedTime + " ago";
+                return notification.getText() + " - " + elapsedTime + " ago";
+        }
+    }
+
+    // "Lorin", "Lorin and Zara" or "Lorin and 36 others"
+    private String formatActors(Notification notification) {
+        if (notification.getRecentActors().isEmpty()) {
+            return notification.getSourceId();
+        }
+        String latest = notification.getRecentActors().get(0);
+        int others = notification.getActorCount() - 1;
+        if (others <= 0) {
+            return latest;
+        }
+        if (others == 1 && notification.getRecentActors().size() > 1) {
+            return latest + " and " + notification.getRecentActors().get(1);
         }
+        return latest + " and " + others + " other" + (others > 1 ? "s" : "");
     }
 
     private String getElapsedTime(String timestamp) {
@@ -110,98 +209,11 @@ public class NotificationsUI extends JFrame {
     private JPanel createHeaderPanel() {
         JPanel headerPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         headerPanel.setBackground(new Color(51, 51, 51));
-        JLabel lblRegister = new JLabel("Notifications 🐥");
-        lblRegister.setFont(new Font("Arial", Font.BOLD, 16));
-        lblRegister.setForeground(Color.WHITE);
-        headerPanel.add(lblRegister);
+        headerLabel = new JLabel("Notifications 🐥");
+        headerLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        headerLabel.setForeground(Color.WHITE);
+        headerPanel.add(headerLabel);
         headerPanel.setPreferredSize(new Dimension(WIDTH, 40));
         return headerPanel;
     }
-
-    private JPanel createNavigationPanel() {
-        JPanel navigationPanel = new JPanel();
-        navigationPanel.setBackground(new Color(249, 249, 249));
-        navigationPanel.setLayout(new BoxLayout(navigationPanel, BoxLayout.X_AXIS));
-        navigationPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
-
-        navigationPanel.add(createIconButton("img/icons/home.png", "home"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/search.png", "explore"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/add.png", "add"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/heart.png", "notification"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/profile.png", "profile"));
-
-        return navigationPanel;
-    }
-
-    private JButton createIconButton(String iconPath, String buttonType) {
-        ImageIcon iconOriginal;
-        try {
-            iconOriginal = new ImageIcon(iconPath);
-        } catch (Exception e) {
-            iconOriginal = new ImageIcon();
-            System.err.println("Icon not found: " + iconPath);
-        }
-        Image iconScaled = iconOriginal.getImage().getScaledInstance(NAV_ICON_SIZE, NAV_ICON_SIZE, Image.SCALE_SMOOTH);
-        JButton button = new JButton(new ImageIcon(iconScaled));
-        button.setBorder(BorderFactory.createEmptyBorder());
-        button.setContentAreaFilled(false);
-
-        switch (buttonType) {
-            case "home":
-                button.addActionListener(e -> openHomeUI(currentUser));
-                break;
-            case "profile":
-                button.addActionListener(e -> openProfileUI(currentUser));
-                break;
-            case "notification":
-                button.addActionListener(e -> notificationsUI(currentUser));
-                break;
-            case "explore":
-                button.addActionListener(e -> exploreUI(currentUser));
-                break;
-            case "add":
-                button.addActionListener(e -> imageUploadUI(currentUser));
-                break;
-        }
-        return button;
-    }
-
-    private void imageUploadUI(User user) {
-        SwingUtilities.invokeLater(() -> {
-            dispose();
-            new ImageUploadUI(user).setVisible(true);
-        });
-    }
-
-    private void openProfileUI(User user) {
-        SwingUtilities.invokeLater(() -> {
-            dispose();
-            new QuakstagramProfileUI(user).setVisible(true);
-        });
-    }
-
-    private void notificationsUI(User user) {
-        SwingUtilities.invokeLater(() -> {
-            dispose();
-            new NotificationsUI(user).setVisible(true);
-        });
-    }
-
-    private void openHomeUI(User user) {
-        SwingUtilities.invokeLater(() -> {
-            dispose();
-            new QuakstagramHomeUI(user).setVisible(true);
-        });
-    }
-
-    private void exploreUI(User user) {
-        SwingUtilities.invokeLater(() -> {
-            dispose();
-            new ExploreUI(user).setVisible(true);
-        });
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,435 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Append-only store for many small files, packed into segment files instead of one file each.
+// A put appends the bytes to the active segment and a record to index.log; a get looks the key up in
+// memory and reads straight out of a memory-mapped view of the segment, so there is no open, stat or
+// close per item. The active segment's file is extended in MAP_GROWTH_BYTES steps ahead of the appends,
+// so its mapping only has to be redone once per step. Replaced and deleted entries leave dead bytes behind;
+// compact() copies the live entries of mostly-dead segments forward and deletes those segments.
+// Meant for data that can be regenerated, so a torn tail after a crash is dropped rather than repaired.
+public class PackStore {
+    private static final String INDEX_FILE = "index.log";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".pack";
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final long MAP_GROWTH_BYTES = 4L * 1024 * 1024;
+    // A sealed segment is rewritten once less than this share of its bytes is still referenced
+    private static final double COMPACT_BELOW_LIVE_RATIO = 0.5;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private Segment active;
+    private DataOutputStream indexLog;
+
+    private PackStore(Path dir, long segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+    }
+
+    public static PackStore open(Path dir, long segmentBytes) throws IOException {
+        if (segmentBytes <= 0 || segmentBytes > Integer.MAX_VALUE) {
+            // Segments are mapped whole, and a single mapping is limited to 2 GB
+            throw new IllegalArgumentException("Segment size out of range: " + segmentBytes);
+        }
+        PackStore store = new PackStore(dir, segmentBytes);
+        store.load();
+        return store;
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(dir);
+        int newest = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    int id = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(id, new Segment(id, file));
+                    newest = Math.max(newest, id);
+                }
+            }
+        }
+        replayIndex();
+        // Drops the unused tail the last run had allocated ahead of its appends
+        for (Segment segment : segments.values()) {
+            segment.truncate();
+        }
+        active = newest > 0 ? segments.get(newest) : createSegment(1);
+        indexLog = openIndexLog();
+    }
+
+    private void replayIndex() throws IOException {
+        Path indexPath = dir.resolve(INDEX_FILE);
+        if (!Files.exists(indexPath)) {
+            return;
+        }
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            while (true) {
+                byte type = in.readByte();
+                String key = in.readUTF();
+                long recordLength = 1 + 2 + utfLength(key);
+                if (type == PUT) {
+                    Location location = new Location(in.readInt(), in.readLong(), in.readInt());
+                    recordLength += 4 + 8 + 4;
+                    Segment segment = segments.get(location.segment);
+                    // Records for compacted segments are superseded by later ones; a record past the end of
+                    // its segment belongs to a write that never completed
+                    if (segment != null && location.offset + location.length <= segment.size) {
+                        replace(key, location);
+                        segment.end = Math.max(segment.end, location.offset + location.length);
+                    }
+                } else if (type == DELETE) {
+                    replace(key, null);
+                } else {
+                    break;
+                }
+                validLength += recordLength;
+            }
+        } catch (EOFException | UTFDataFormatException e) {
+            // Torn last record
+        }
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+            if (channel.size() > validLength) {
+                channel.truncate(validLength);
+            }
+        }
+    }
+
+    // Returns the stored bytes as a stream over the mapped segment, or null if the key is absent
+    public InputStream get(String key) throws IOException {
+        // A concurrent compaction moves the entry before it drops and closes the old segment, so a lookup
+        // that lands on a dropped or closed segment finds the new location on the second try
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Location location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            Segment segment = segments.get(location.segment);
+            if (segment == null) {
+                continue;
+            }
+            try {
+                return new BufferInputStream(segment.slice(location.offset, location.length));
+            } catch (ClosedChannelException e) {
+                if (attempt == 1) {
+                    throw e;
+                }
+            }
+        }
+        return null;
+    }
+
+    public boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    // Snapshot of the stored keys
+    public Set<String> keys() {
+        return new HashSet<>(index.keySet());
+    }
+
+    public synchronized void put(String key, byte[] data) throws IOException {
+        if (active.size > 0 && active.size + data.length > segmentBytes) {
+            active = createSegment(active.id + 1);
+        }
+        long offset = active.append(data, segmentBytes);
+        Location location = new Location(active.id, offset, data.length);
+        // Data before index: a crash in between leaves unreferenced bytes, never a dangling entry
+        writeIndexRecord(PUT, key, location);
+        replace(key, location);
+    }
+
+    public synchronized void delete(String key) throws IOException {
+        if (index.containsKey(key)) {
+            writeIndexRecord(DELETE, key, null);
+            replace(key, null);
+        }
+    }
+
+    // Moves the live entries out of sealed segments that are mostly dead, deletes those segments and
+    // rewrites index.log down to one record per live entry. Reads keep working throughout.
+    public void compact() throws IOException {
+        List<Segment> candidates = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : segments.values()) {
+                if (segment != active && segment.liveBytes.get() < segment.size * COMPACT_BELOW_LIVE_RATIO) {
+                    candidates.add(segment);
+                }
+            }
+        }
+        for (Segment segment : candidates) {
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                if (entry.getValue().segment != segment.id) {
+                    continue;
+                }
+                synchronized (this) {
+                    Location location = index.get(entry.getKey());
+                    if (location != entry.getValue()) {
+                        continue;
+                    }
+                    ByteBuffer data = segment.slice(location.offset, location.length);
+                    byte[] bytes = new byte[location.length];
+                    data.get(bytes);
+                    put(entry.getKey(), bytes);
+                }
+            }
+            synchronized (this) {
+                segments.remove(segment.id);
+                segment.close();
+            }
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                // Some platforms refuse to delete a file that is still mapped; it is unreferenced either way
+                System.err.println("Error deleting pack segment " + segment.path + ": " + e.getMessage());
+            }
+        }
+        if (!candidates.isEmpty()) {
+            rewriteIndex();
+        }
+    }
+
+    public synchronized Stats getStats() {
+        long totalBytes = 0;
+        long liveBytes = 0;
+        for (Segment segment : segments.values()) {
+            totalBytes += segment.size;
+            liveBytes += segment.liveBytes.get();
+        }
+        return new Stats(index.size(), segments.size(), totalBytes, liveBytes);
+    }
+
+    public synchronized void close() throws IOException {
+        indexLog.close();
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    private synchronized void rewriteIndex() throws IOException {
+        Path indexPath = dir.resolve(INDEX_FILE);
+        Path temp = dir.resolve(INDEX_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                writeRecord(out, PUT, entry.getKey(), entry.getValue());
+            }
+        }
+        indexLog.close();
+        Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexLog = openIndexLog();
+    }
+
+    // A null location removes the key
+    private void replace(String key, Location location) {
+        Location previous = location != null ? index.put(key, location) : index.remove(key);
+        if (previous != null) {
+            Segment segment = segments.get(previous.segment);
+            if (segment != null) {
+                segment.liveBytes.addAndGet(-previous.length);
+            }
+        }
+        if (location != null) {
+            segments.get(location.segment).liveBytes.addAndGet(location.length);
+        }
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Path path = dir.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        if (!Files.exists(path)) {
+            Files.createFile(path);
+        }
+        Segment segment = new Segment(id, path);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private DataOutputStream openIndexLog() throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dir.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    private void writeIndexRecord(byte type, String key, Location location) throws IOException {
+        writeRecord(indexLog, type, key, location);
+        indexLog.flush();
+    }
+
+    private static void writeRecord(DataOutputStream out, byte type, String key, Location location) throws IOException {
+        out.writeByte(type);
+        out.writeUTF(key);
+        if (type == PUT) {
+            out.writeInt(location.segment);
+            out.writeLong(location.offset);
+            out.writeInt(location.length);
+        }
+    }
+
+    // Bytes DataOutputStream.writeUTF uses for the string, excluding its two-byte length prefix
+    private static int utfLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+        }
+        return length;
+    }
+
+    private static class Location {
+        private final int segment;
+        private final long offset;
+        private final int length;
+
+        Location(int segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final AtomicLong liveBytes = new AtomicLong();
+        // Bytes appended so far; the file itself may already be longer
+        private volatile long size;
+        private volatile long allocated;
+        private volatile MappedByteBuffer mapped;
+        // End of the furthest record replayed from index.log, used only while loading
+        private long end;
+
+        Segment(int id, Path path) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+            this.allocated = size;
+        }
+
+        // Called while loading, before anything is mapped; bytes past the last record are unreferenced
+        void truncate() throws IOException {
+            if (size > end) {
+                channel.truncate(end);
+                size = end;
+                allocated = end;
+            }
+        }
+
+        // Called with the store locked; the file is not grown past limit unless data alone needs it
+        long append(byte[] data, long limit) throws IOException {
+            long offset = size;
+            long needed = offset + data.length;
+            if (needed > allocated) {
+                // Extended first, so the data written below ends up over the zero that grows the file
+                long target = Math.max(needed,
+                        Math.min(limit, (needed + MAP_GROWTH_BYTES - 1) / MAP_GROWTH_BYTES * MAP_GROWTH_BYTES));
+                channel.write(ByteBuffer.allocate(1), target - 1);
+                allocated = target;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            size = position;
+            return offset;
+        }
+
+        ByteBuffer slice(long offset, int length) throws IOException {
+            MappedByteBuffer view = mapped;
+            if (view == null || offset + length > view.capacity()) {
+                view = remap();
+            }
+            ByteBuffer slice = view.duplicate();
+            slice.position((int) offset).limit((int) offset + length);
+            return slice.slice();
+        }
+
+        // Maps everything allocated so far, so the appends that follow are readable through the same
+        // mapping until the file grows by another step
+        private synchronized MappedByteBuffer remap() throws IOException {
+            if (mapped == null || mapped.capacity() < size) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, allocated);
+            }
+            return mapped;
+        }
+
+        void close() throws IOException {
+            // Mapped views stay valid after the channel is closed
+            channel.close();
+        }
+    }
+
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    public static class Stats {
+        private final int entries;
+        private final int segments;
+        private final long totalBytes;
+        private final long liveBytes;
+
+        Stats(int entries, int segments, long totalBytes, long liveBytes) {
+            this.entries = entries;
+            this.segments = segments;
+            this.totalBytes = totalBytes;
+            this.liveBytes = liveBytes;
+        }
+
+        public int getEntries() { return entries; }
+        public int getSegments() { return segments; }
+        public long getTotalBytes() { return totalBytes; }
+        public long getLiveBytes() { return liveBytes; }
+    }
+}
@@ -2,6 +2,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,14 +21,7 @@ class Picture {
 
     public void loadLikesCount() throws SQLException {
         try (Connection conn = new DatabaseConnector().getConnection()) {
-            String query = "SELECT COUNT(*) FROM `LIKE` WHERE imagePath = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, this.imagePath);
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    likesCount = rs.getInt(1);
-                }
-            }
+            likesCount = PictureStats.getLikesCount(conn, this.imagePath);
         }
     }
 
@@ -47,25 +41,40 @@ class Picture {
 
     public void addComment(String username, String comment) throws SQLException {
         try (Connection conn = new DatabaseConnector().getConnection()) {
+            conn.setAutoCommit(false);
             String query = "INSERT INTO COMMENT (text, username, imagePath) VALUES (?, ?, ?)";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            long commentId;
+            try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
                 stmt.setString(1, comment);
                 stmt.setString(2, username);
                 stmt.setString(3, this.imagePath);
                 stmt.executeUpdate();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    commentId = keys.next() ? keys.getLong(1) : -1;
+                }
+            }
+            PictureStats.adjustComments(conn, this.imagePath, 1);
+            conn.commit();
+            if (commentId > 0) {
+                SearchIndex.onCommentAdded(commentId, this.imagePath, comment);
             }
+            TrendingEngine.recordComment(this.imagePath, 1);
             comments.add(comment);
         }
     }
 
     public void like(String username) throws SQLException {
         try (Connection conn = new DatabaseConnector().getConnection()) {
+            conn.setAutoCommit(false);
             String query = "INSERT INTO `LIKE` (username, imagePath) VALUES (?, ?)";
             try (PreparedStatement stmt = conn.prepareStatement(query)) {
                 stmt.setString(1, username);
                 stmt.setString(2, this.imagePath);
                 stmt.executeUpdate();
             }
+            PictureStats.adjustLikes(conn, this.imagePath, 1);
+            conn.commit();
+            TrendingEngine.recordLike(this.imagePath, 1);
             likesCount++;
         }
     }
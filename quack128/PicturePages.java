@@ -0,0 +1,66 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Keyset-paged picture listings, newest first, for the image grids
+public class PicturePages {
+    private static final String KEYSET = "(createdAt < ? OR (createdAt = ? AND imagePath < ?))";
+
+    private PicturePages() {
+    }
+
+    public static VirtualImageGrid.Page recent(FeedQueryEngine.Cursor after, int limit) throws SQLException {
+        return load(null, after, limit);
+    }
+
+    public static VirtualImageGrid.Page byUser(String username, FeedQueryEngine.Cursor after, int limit) throws SQLException {
+        return load(username, after, limit);
+    }
+
+    private static VirtualImageGrid.Page load(String username, FeedQueryEngine.Cursor after, int limit) throws SQLException {
+        List<String> conditions = new ArrayList<>();
+        if (username != null) {
+            conditions.add("username = ?");
+        }
+        if (after != null) {
+            conditions.add(KEYSET);
+        }
+        String query = "SELECT imagePath, createdAt FROM PICTURE"
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY createdAt DESC, imagePath DESC LIMIT ?";
+        List<String> imagePaths = new ArrayList<>();
+        FeedQueryEngine.Cursor next = after;
+        boolean hasMore = false;
+        try (Connection conn = new DatabaseConnector().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            int index = 1;
+            if (username != null) {
+                stmt.setString(index++, username);
+            }
+            if (after != null) {
+                stmt.setTimestamp(index++, after.getCreatedAt());
+                stmt.setTimestamp(index++, after.getCreatedAt());
+                stmt.setString(index++, after.getImagePath());
+            }
+            // One extra row tells whether another page exists
+            stmt.setInt(index, limit + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (imagePaths.size() == limit) {
+                        hasMore = true;
+                        break;
+                    }
+                    String imagePath = rs.getString("imagePath");
+                    Timestamp createdAt = rs.getTimestamp("createdAt");
+                    imagePaths.add(imagePath);
+                    next = new FeedQueryEngine.Cursor(createdAt, imagePath);
+                }
+            }
+        }
+        return new VirtualImageGrid.Page(imagePaths, next, hasMore);
+    }
+}
@@ -0,0 +1,109 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Materialized like and comment counters per picture, kept in PICTURE_STATS
+public class PictureStats {
+    private static final long RECONCILE_INTERVAL_MINUTES = Long.getLong("quack.stats.reconcileMinutes", 15L);
+
+    private PictureStats() {
+    }
+
+    // Must run on the same connection (and transaction) as the LIKE insert/delete it accounts for
+    public static void adjustLikes(Connection conn, String imagePath, int delta) throws SQLException {
+        adjust(conn, imagePath, "likesCount", delta);
+    }
+
+    public static void adjustComments(Connection conn, String imagePath, int delta) throws SQLException {
+        adjust(conn, imagePath, "commentsCount", delta);
+    }
+
+    private static void adjust(Connection conn, String imagePath, String column, int delta) throws SQLException {
+        String query = "INSERT INTO PICTURE_STATS (imagePath, " + column + ") VALUES (?, GREATEST(?, 0)) " +
+                "ON DUPLICATE KEY UPDATE " + column + " = GREATEST(" + column + " + ?, 0)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, imagePath);
+            stmt.setInt(2, delta);
+            stmt.setInt(3, delta);
+            stmt.executeUpdate();
+        }
+    }
+
+    public static int getLikesCount(Connection conn, String imagePath) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT likesCount FROM PICTURE_STATS WHERE imagePath = ?")) {
+            stmt.setString(1, imagePath);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static final String RECOMPUTED = "SELECT p.imagePath, " +
+            "(SELECT COUNT(*) FROM `LIKE` l WHERE l.imagePath = p.imagePath) AS likesCount, " +
+            "(SELECT COUNT(*) FROM COMMENT c WHERE c.imagePath = p.imagePath) AS commentsCount " +
+            "FROM PICTURE p";
+
+    // Recomputes every counter from LIKE and COMMENT, touching only rows that are wrong or missing
+    public static Reconciliation reconcile(Connection conn) throws SQLException {
+        // Rows that already hold the right counts are excluded, so the update count is the real drift
+        String repair = "UPDATE PICTURE_STATS s JOIN (" + RECOMPUTED + ") r ON r.imagePath = s.imagePath " +
+                "SET s.likesCount = r.likesCount, s.commentsCount = r.commentsCount " +
+                "WHERE s.likesCount <> r.likesCount OR s.commentsCount <> r.commentsCount";
+        // IGNORE: a like committed meanwhile may already have created the row through adjust()
+        String insertMissing = "INSERT IGNORE INTO PICTURE_STATS (imagePath, likesCount, commentsCount) " +
+                "SELECT r.imagePath, r.likesCount, r.commentsCount FROM (" + RECOMPUTED + ") r " +
+                "LEFT JOIN PICTURE_STATS s ON s.imagePath = r.imagePath WHERE s.imagePath IS NULL";
+        String deleteOrphans = "DELETE s FROM PICTURE_STATS s LEFT JOIN PICTURE p ON p.imagePath = s.imagePath " +
+                "WHERE p.imagePath IS NULL";
+        int repaired;
+        int inserted;
+        int deleted;
+        try (PreparedStatement stmt = conn.prepareStatement(repair)) {
+            repaired = stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(insertMissing)) {
+            inserted = stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(deleteOrphans)) {
+            deleted = stmt.executeUpdate();
+        }
+        return new Reconciliation(repaired, inserted, deleted);
+    }
+
+    public static void scheduleReconciliation() {
+        BackgroundJobs.scheduleWithFixedDelay("picture-stats-reconcile", () -> {
+            try (Connection conn = new DatabaseConnector().getConnection()) {
+                Reconciliation result = reconcile(conn);
+                if (result.getRepaired() > 0) {
+                    System.err.println("Repaired drift in " + result.getRepaired() + " picture counter row(s)");
+                }
+                if (result.getInserted() > 0) {
+                    System.err.println("Added " + result.getInserted() + " missing picture counter row(s)");
+                }
+                if (result.getDeleted() > 0) {
+                    System.err.println("Removed " + result.getDeleted() + " counter row(s) of deleted pictures");
+                }
+            } catch (SQLException e) {
+                System.err.println("Error reconciling picture counters: " + e.getMessage());
+            }
+        }, RECONCILE_INTERVAL_MINUTES, RECONCILE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public static class Reconciliation {
+        private final int repaired;
+        private final int inserted;
+        private final int deleted;
+
+        Reconciliation(int repaired, int inserted, int deleted) {
+            this.repaired = repaired;
+            this.inserted = inserted;
+            this.deleted = deleted;
+        }
+
+        public int getRepaired() { return repaired; }
+        public int getInserted() { return inserted; }
+        public int getDeleted() { return deleted; }
+    }
+}
@@ -0,0 +1,30 @@
+import java.sql.Timestamp;
+
+// A picture as it appears in someone's home feed
+class Post {
+    private final String username;
+    private final String caption;
+    private int likes;
+    private final String imagePath;
+    private boolean isLiked;
+    private final Timestamp createdAt;
+
+    public Post(String username, String caption, int likes, String imagePath, boolean isLiked, Timestamp createdAt) {
+        this.username = username;
+        this.caption = caption;
+        this.likes = likes;
+        this.imagePath = imagePath;
+        this.isLiked = isLiked;
+        this.createdAt = createdAt;
+    }
+
+    public String getUsername() { return username; }
+    public String getCaption() { return caption; }
+    public int getLikes() { return likes; }
+    public String getImagePath() { return imagePath; }
+    public boolean isLiked() { return isLiked; }
+    public Timestamp getCreatedAt() { return createdAt; }
+
+    public void setLikes(int likes) { this.likes = likes; }
+    public void setLiked(boolean liked) { isLiked = liked; }
+}
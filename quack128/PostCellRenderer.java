@@ -0,0 +1,99 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Stamps one reusable post panel for every visible feed row. Images come from ImageCache; a row whose
+// image is not decoded yet shows a placeholder and asks imageRequester to load it.
+class PostCellRenderer implements ListCellRenderer<Post> {
+    private static final Color LIKE_BUTTON_COLOR = new Color(255, 90, 95);
+    private static final Color SEPARATOR_COLOR = new Color(230, 230, 230);
+
+    private final JPanel postPanel = new JPanel();
+    private final JLabel usernameLabel = new JLabel();
+    private final JLabel imageLabel = new JLabel();
+    private final JLabel captionLabel = new JLabel();
+    private final JLabel likesLabel = new JLabel();
+    private final JButton likeButton = new JButton();
+    private final Icon placeholder;
+    private final Consumer<String> imageRequester;
+    private final Set<String> missingImages;
+
+    PostCellRenderer(int imageWidth, int imageHeight, Consumer<String> imageRequester, Set<String> missingImages) {
+        this.imageRequester = imageRequester;
+        this.missingImages = missingImages;
+
+        BufferedImage blank = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = blank.createGraphics();
+        g.setColor(new Color(238, 238, 238));
+        g.fillRect(0, 0, imageWidth, imageHeight);
+        g.dispose();
+        placeholder = new ImageIcon(blank);
+
+        postPanel.setLayout(new BoxLayout(postPanel, BoxLayout.Y_AXIS));
+        postPanel.setBackground(Color.WHITE);
+        postPanel.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createMatteBorder(0, 0, 5, 0, SEPARATOR_COLOR),
+                BorderFactory.createEmptyBorder(5, 5, 5, 5)));
+
+        usernameLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        imageLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        imageLabel.setPreferredSize(new Dimension(imageWidth, imageHeight));
+        imageLabel.setBorder(BorderFactory.createLineBorder(Color.BLACK));
+        captionLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        likesLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        likeButton.setAlignmentX(Component.LEFT_ALIGNMENT);
+        likeButton.setBackground(LIKE_BUTTON_COLOR);
+        likeButton.setOpaque(true);
+        likeButton.setBorderPainted(false);
+
+        postPanel.add(usernameLabel);
+        postPanel.add(imageLabel);
+        postPanel.add(captionLabel);
+        postPanel.add(likesLabel);
+        postPanel.add(likeButton);
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends Post> list, Post post, int index,
+                                                  boolean isSelected, boolean cellHasFocus) {
+        usernameLabel.setText(post.getUsername());
+        captionLabel.setText(post.getCaption());
+        likesLabel.setText("Likes: " + post.getLikes());
+        likeButton.setText(post.isLiked() ? "❤️" : "🤍");
+
+        String imagePath = post.getImagePath();
+        BufferedImage image = imagePath == null ? null : ImageCache.peek(imagePath, Thumbnails.Variant.FEED);
+        if (image != null) {
+            imageLabel.setText(null);
+            imageLabel.setIcon(new ImageIcon(image));
+        } else if (imagePath != null && missingImages.contains(imagePath)) {
+            imageLabel.setIcon(null);
+            imageLabel.setText("Image not found");
+        } else {
+            imageLabel.setText(null);
+            imageLabel.setIcon(placeholder);
+            if (imagePath != null) {
+                imageRequester.accept(imagePath);
+            }
+        }
+        return postPanel;
+    }
+
+    // Which part of the row was clicked: lays the stamp out at the cell's size and picks the deepest component
+    Component componentAt(JList<? extends Post> list, Post post, int index, Rectangle cellBounds, Point point) {
+        Component cell = getListCellRendererComponent(list, post, index, false, false);
+        cell.setBounds(0, 0, cellBounds.width, cellBounds.height);
+        cell.doLayout();
+        return SwingUtilities.getDeepestComponentAt(cell, point.x - cellBounds.x, point.y - cellBounds.y);
+    }
+
+    boolean isLikeButton(Component component) {
+        return component == likeButton;
+    }
+
+    boolean isImage(Component component) {
+        return component == imageLabel;
+    }
+}
@@ -1,120 +1,211 @@
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
-public class QuakstagramHomeUI extends JFrame {
+public class QuakstagramHomeUI extends JPanel implements AppShell.Screen {
     private static final int WIDTH = 300;
     private static final int HEIGHT = 500;
-    private static final int NAV_ICON_SIZE = 20;
     private static final int IMAGE_WIDTH = WIDTH - 100;
     private static final int IMAGE_HEIGHT = 150;
     private static final Color LIKE_BUTTON_COLOR = new Color(255, 90, 95);
+    private static final int POST_HEIGHT_ESTIMATE = 240;
+    static final int FIRST_PAGE_SIZE = HEIGHT / POST_HEIGHT_ESTIMATE + 1;
+    private static final int PAGE_SIZE = 10;
 
     private CardLayout cardLayout;
     private JPanel cardPanel;
     private JPanel homePanel;
     private JPanel imageViewPanel;
+    private JList<Post> feedList;
+    private final DefaultListModel<Post> feedModel = new DefaultListModel<>();
+    private PostCellRenderer postRenderer;
+    // Feed image loads in flight, by path; loads for rows scrolled out of view are cancelled
+    private final Map<String, Future<?>> imageLoads = new HashMap<>();
+    private final Set<String> missingImages = new HashSet<>();
+    // Pictures whose like is being stored; further clicks on them are ignored until it completes
+    private final Set<String> pendingLikes = new HashSet<>();
+    private JScrollPane scrollPane;
     private User currentUser;
-    private List<Post> posts;
-
-    public QuakstagramHomeUI(User user) {
+    private final FeedQueryEngine feedQueryEngine = new FeedQueryEngine();
+    private FeedQueryEngine.Page lastPage;
+    private SwingWorker<FeedQueryEngine.Page, Void> prefetchWorker;
+    private boolean appendWhenPrefetched;
+    private SwingWorker<FeedQueryEngine.Page, Void> newPostsWorker;
+
+    // firstPage may be null, in which case the first page is loaded here
+    public QuakstagramHomeUI(User user, FeedQueryEngine.Page firstPage) {
         currentUser = user;
-        setTitle("Quakstagram Home");
-        setSize(WIDTH, HEIGHT);
-        setMinimumSize(new Dimension(WIDTH, HEIGHT));
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
 
-        posts = new ArrayList<>();
+        initializeUI();
 
+        if (firstPage != null) {
+            appendPage(firstPage);
+            // The page was loaded at sign-in, which may have been a while ago
+            loadNewPosts();
+            return;
+        }
         try {
-            loadPosts();
+            appendPage(feedQueryEngine.loadPage(currentUser.getUsername(), null, FIRST_PAGE_SIZE));
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(this, "Error loading posts: " + e.getMessage(),
                     "Database Error", JOptionPane.ERROR_MESSAGE);
             e.printStackTrace();
         }
+    }
 
-        initializeUI();
+    @Override
+    public String getTitle() {
+        return "Quakstagram Home";
     }
 
-    private void loadPosts() throws SQLException {
-        try (Connection conn = new DatabaseConnector().getConnection()) {
-            String followingQuery = "SELECT followed FROM FOLLOW WHERE follower = ?";
-            List<String> following = new ArrayList<>();
+    @Override
+    public void onShow() {
+        loadNewPosts();
+    }
 
-            try (PreparedStatement stmt = conn.prepareStatement(followingQuery)) {
-                stmt.setString(1, currentUser.getUsername());
-                ResultSet rs = stmt.executeQuery();
-                while (rs.next()) {
-                    following.add(rs.getString("followed"));
-                }
-            }
+    @Override
+    public void onReselect() {
+        cardLayout.show(cardPanel, "Home");
+        scrollPane.getVerticalScrollBar().setValue(0);
+        loadNewPosts();
+    }
 
-            if (following.isEmpty()) {
-                return;
+    // Fetches the newest page and prepends whatever is newer than the top of the feed
+    private void loadNewPosts() {
+        if (newPostsWorker != null) {
+            return;
+        }
+        newPostsWorker = new SwingWorker<>() {
+            @Override
+            protected FeedQueryEngine.Page doInBackground() throws SQLException {
+                return feedQueryEngine.loadPage(currentUser.getUsername(), null, PAGE_SIZE);
             }
 
-            String postsQuery = "SELECT p.imagePath, p.caption, u.username " +
-                    "FROM PICTURE p JOIN USER u ON p.username = u.username " +
-                    "WHERE p.username IN (";
-
-            StringBuilder placeholders = new StringBuilder();
-            for (int i = 0; i < following.size(); i++) {
-                placeholders.append("?");
-                if (i < following.size() - 1) {
-                    placeholders.append(",");
+            @Override
+            protected void done() {
+                newPostsWorker = null;
+                try {
+                    prependNewPosts(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error loading new posts: " + e.getMessage());
                 }
             }
-            postsQuery += placeholders + ") ORDER BY p.createdAt DESC";
+        };
+        newPostsWorker.execute();
+    }
 
-            try (PreparedStatement stmt = conn.prepareStatement(postsQuery)) {
-                for (int i = 0; i < following.size(); i++) {
-                    stmt.setString(i + 1, following.get(i));
-                }
+    private void prependNewPosts(FeedQueryEngine.Page page) {
+        if (feedModel.isEmpty()) {
+            resetFeed(page);
+            return;
+        }
+        Post newest = feedModel.get(0);
+        List<Post> fresh = new ArrayList<>();
+        for (Post post : page.getPosts()) {
+            if (isNewer(post, newest)) {
+                fresh.add(post);
+            }
+        }
+        if (fresh.size() == page.getPosts().size() && page.hasMore()) {
+            // More arrived than one page holds; start over from the top rather than leave a gap
+            resetFeed(page);
+            return;
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+        // Keep the rows the user is looking at in place unless they are at the very top
+        JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+        int offset = scrollBar.getValue();
+        for (int i = fresh.size() - 1; i >= 0; i--) {
+            feedModel.add(0, fresh.get(i));
+        }
+        if (offset > 0) {
+            feedList.revalidate();
+            scrollPane.getViewport().validate();
+            scrollBar.setValue(offset + fresh.size() * feedList.getFixedCellHeight());
+        }
+    }
+
+    // Feed order is (createdAt, imagePath) descending
+    private static boolean isNewer(Post post, Post than) {
+        int byTime = post.getCreatedAt().compareTo(than.getCreatedAt());
+        return byTime > 0 || (byTime == 0 && post.getImagePath().compareTo(than.getImagePath()) > 0);
+    }
 
-                ResultSet rs = stmt.executeQuery();
-                while (rs.next()) {
-                    String imagePath = rs.getString("imagePath");
-                    String caption = rs.getString("caption");
-                    String username = rs.getString("username");
+    private void resetFeed(FeedQueryEngine.Page page) {
+        feedModel.clear();
+        prefetchWorker = null;
+        appendWhenPrefetched = false;
+        appendPage(page);
+        scrollPane.getVerticalScrollBar().setValue(0);
+    }
+
+    private void appendPage(FeedQueryEngine.Page page) {
+        lastPage = page;
+        for (Post post : page.getPosts()) {
+            feedModel.addElement(post);
+        }
 
-                    int likes = getLikeCount(conn, imagePath);
+        prefetchNextPage();
+        // A short page may not fill the viewport, in which case no scroll event will ever ask for more
+        SwingUtilities.invokeLater(this::checkNearBottom);
+    }
 
-                    boolean isLiked = isLikedByUser(conn, imagePath, currentUser.getUsername());
+    private void prefetchNextPage() {
+        if (prefetchWorker != null || lastPage == null || !lastPage.hasMore()) {
+            return;
+        }
+        FeedQueryEngine.Cursor cursor = lastPage.getNextCursor();
+        prefetchWorker = new SwingWorker<>() {
+            @Override
+            protected FeedQueryEngine.Page doInBackground() throws SQLException {
+                return feedQueryEngine.loadPage(currentUser.getUsername(), cursor, PAGE_SIZE);
+            }
 
-                    posts.add(new Post(username, caption, likes, imagePath, isLiked));
+            @Override
+            protected void done() {
+                if (appendWhenPrefetched) {
+                    appendPrefetchedPage();
                 }
             }
-        }
+        };
+        prefetchWorker.execute();
     }
 
-    private int getLikeCount(Connection conn, String imagePath) throws SQLException {
-        String query = "SELECT COUNT(*) FROM `LIKE` WHERE imagePath = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, imagePath);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
+    private void checkNearBottom() {
+        JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+        int distanceToBottom = scrollBar.getMaximum() - (scrollBar.getValue() + scrollBar.getVisibleAmount());
+        if (distanceToBottom <= scrollPane.getViewport().getHeight()) {
+            appendPrefetchedPage();
         }
-        return 0;
     }
 
-    private boolean isLikedByUser(Connection conn, String imagePath, String username) throws SQLException {
-        String query = "SELECT 1 FROM `LIKE` WHERE imagePath = ? AND username = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, imagePath);
-            stmt.setString(2, username);
-            ResultSet rs = stmt.executeQuery();
-            return rs.next();
+    private void appendPrefetchedPage() {
+        if (prefetchWorker == null) {
+            return;
+        }
+        if (!prefetchWorker.isDone()) {
+            appendWhenPrefetched = true;
+            return;
+        }
+        appendWhenPrefetched = false;
+        SwingWorker<FeedQueryEngine.Page, Void> worker = prefetchWorker;
+        prefetchWorker = null;
+        try {
+            appendPage(worker.get());
+        } catch (InterruptedException | ExecutionException e) {
+            System.err.println("Error loading more posts: " + e.getMessage());
         }
     }
 
@@ -133,41 +224,15 @@ public class QuakstagramHomeUI extends JFrame {
         headerPanel.add(lblTitle);
         headerPanel.setPreferredSize(new Dimension(WIDTH, 40));
 
-        JPanel contentPanel = new JPanel();
-        contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
-        JScrollPane scrollPane = new JScrollPane(contentPanel);
+        feedList = createFeedList();
+        scrollPane = new JScrollPane(feedList);
         scrollPane.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
-
-        for (Post post : posts) {
-            JPanel postPanel = createPostPanel(post);
-            contentPanel.add(postPanel);
-
-            JPanel spacingPanel = new JPanel();
-            spacingPanel.setPreferredSize(new Dimension(WIDTH-10, 5));
-            spacingPanel.setBackground(new Color(230, 230, 230));
-            contentPanel.add(spacingPanel);
-        }
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> checkNearBottom());
+        scrollPane.getViewport().addChangeListener(e -> cancelHiddenImageLoads());
 
         homePanel.add(headerPanel, BorderLayout.NORTH);
         homePanel.add(scrollPane, BorderLayout.CENTER);
 
-        JPanel navigationPanel = new JPanel();
-        navigationPanel.setBackground(new Color(249, 249, 249));
-        navigationPanel.setLayout(new BoxLayout(navigationPanel, BoxLayout.X_AXIS));
-        navigationPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
-
-        navigationPanel.add(createIconButton("img/icons/home.png", "home"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/search.png", "explore"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/add.png", "add"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/heart.png", "notification"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/profile.png", "profile"));
-
-        homePanel.add(navigationPanel, BorderLayout.SOUTH);
-
         cardPanel.add(homePanel, "Home");
         cardPanel.add(imageViewPanel, "ImageView");
         add(cardPanel, BorderLayout.CENTER);
@@ -175,99 +240,167 @@ public class QuakstagramHomeUI extends JFrame {
         cardLayout.show(cardPanel, "Home");
     }
 
-    private JPanel createPostPanel(Post post) {
-        JPanel postPanel = new JPanel();
-        postPanel.setLayout(new BoxLayout(postPanel, BoxLayout.Y_AXIS));
-        postPanel.setBackground(Color.WHITE);
-        postPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
-        postPanel.setAlignmentX(CENTER_ALIGNMENT);
-
-        JLabel usernameLabel = new JLabel(post.getUsername());
-        usernameLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-
-        JLabel imageLabel = new JLabel();
-        imageLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-        imageLabel.setPreferredSize(new Dimension(IMAGE_WIDTH, IMAGE_HEIGHT));
-        imageLabel.setBorder(BorderFactory.createLineBorder(Color.BLACK));
+    // Only the visible rows are ever rendered, all through one recycled PostCellRenderer stamp, so
+    // memory and layout cost stay flat however long the feed grows
+    private JList<Post> createFeedList() {
+        postRenderer = new PostCellRenderer(IMAGE_WIDTH, IMAGE_HEIGHT, this::requestFeedImage, missingImages);
+        JList<Post> list = new JList<>(feedModel);
+        list.setCellRenderer(postRenderer);
+        // Fixed row size from a prototype, so the list never measures every post; rows still paint at full list width
+        list.setPrototypeCellValue(new Post("username", "caption", 0, null, false, null));
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                handleFeedClick(e.getPoint());
+            }
+        });
+        return list;
+    }
 
-        try {
-            BufferedImage originalImage = ImageIO.read(new File(post.getImagePath()));
-            BufferedImage croppedImage = originalImage.getSubimage(
-                    0, 0,
-                    Math.min(originalImage.getWidth(), IMAGE_WIDTH),
-                    Math.min(originalImage.getHeight(), IMAGE_HEIGHT));
-            imageLabel.setIcon(new ImageIcon(croppedImage));
-        } catch (IOException ex) {
-            imageLabel.setText("Image not found");
+    private void handleFeedClick(Point point) {
+        int index = feedList.locationToIndex(point);
+        if (index < 0) {
+            return;
         }
+        Rectangle cellBounds = feedList.getCellBounds(index, index);
+        if (cellBounds == null || !cellBounds.contains(point)) {
+            return;
+        }
+        Post post = feedModel.get(index);
+        Component clicked = postRenderer.componentAt(feedList, post, index, cellBounds, point);
+        if (postRenderer.isLikeButton(clicked)) {
+            handleLikeAction(post, () -> {
+                // The feed may have been reset while the like was being stored
+                int current = feedModel.indexOf(post);
+                if (current >= 0) {
+                    feedModel.set(current, post);
+                }
+            });
+        } else if (postRenderer.isImage(clicked)) {
+            displayPostDetails(post);
+        }
+    }
 
-        JLabel captionLabel = new JLabel(post.getCaption());
-        captionLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-
-        JLabel likesLabel = new JLabel("Likes: " + post.getLikes());
-        likesLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+    private void requestFeedImage(String imagePath) {
+        if (imageLoads.containsKey(imagePath)) {
+            return;
+        }
+        imageLoads.put(imagePath, AsyncImageLoader.prefetch(imagePath, Thumbnails.Variant.FEED, loaded -> {
+            imageLoads.remove(imagePath);
+            if (!loaded) {
+                missingImages.add(imagePath);
+            }
+            repaintRowsShowing(imagePath);
+        }));
+    }
 
-        JButton likeButton = new JButton(post.isLiked() ? "❤️" : "🤍");
-        likeButton.setAlignmentX(Component.LEFT_ALIGNMENT);
-        likeButton.setBackground(LIKE_BUTTON_COLOR);
-        likeButton.setOpaque(true);
-        likeButton.setBorderPainted(false);
+    private void repaintRowsShowing(String imagePath) {
+        int first = feedList.getFirstVisibleIndex();
+        int last = feedList.getLastVisibleIndex();
+        for (int i = Math.max(first, 0); i >= 0 && i <= last; i++) {
+            if (imagePath.equals(feedModel.get(i).getImagePath())) {
+                feedList.repaint(feedList.getCellBounds(i, i));
+            }
+        }
+    }
 
-        likeButton.addActionListener(e -> {
-            try {
-                handleLikeAction(post, likesLabel, likeButton);
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(this, "Error updating like: " + ex.getMessage(),
-                        "Database Error", JOptionPane.ERROR_MESSAGE);
+    private void cancelHiddenImageLoads() {
+        if (imageLoads.isEmpty()) {
+            return;
+        }
+        Set<String> visible = new HashSet<>();
+        int first = feedList.getFirstVisibleIndex();
+        int last = feedList.getLastVisibleIndex();
+        for (int i = Math.max(first, 0); i >= 0 && i <= last; i++) {
+            visible.add(feedModel.get(i).getImagePath());
+        }
+        imageLoads.entrySet().removeIf(entry -> {
+            if (visible.contains(entry.getKey())) {
+                return false;
             }
+            entry.getValue().cancel(false);
+            return true;
         });
+    }
 
-        postPanel.add(usernameLabel);
-        postPanel.add(imageLabel);
-        postPanel.add(captionLabel);
-        postPanel.add(likesLabel);
-        postPanel.add(likeButton);
-
-        imageLabel.addMouseListener(new MouseAdapter() {
+    // Toggles the viewer's like off the EDT, then applies it to the post and calls onUpdated. The shown
+    // count only moves when a LIKE row was actually inserted or deleted.
+    private void handleLikeAction(Post post, Runnable onUpdated) {
+        if (!pendingLikes.add(post.getImagePath())) {
+            return;
+        }
+        boolean like = !post.isLiked();
+        new SwingWorker<Integer, Void>() {
             @Override
-            public void mouseClicked(MouseEvent e) {
-                displayPostDetails(post);
+            protected Integer doInBackground() throws SQLException {
+                return like ? insertLike(post) : deleteLike(post);
             }
-        });
 
-        return postPanel;
+            @Override
+            protected void done() {
+                pendingLikes.remove(post.getImagePath());
+                try {
+                    int delta = get();
+                    post.setLikes(post.getLikes() + delta);
+                    post.setLiked(like);
+                    onUpdated.run();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(QuakstagramHomeUI.this, "Error updating like: " + cause.getMessage(),
+                            "Database Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
 
-    private void handleLikeAction(Post post, JLabel likesLabel, JButton likeButton) throws SQLException {
+    // Returns the change in like count: 1, or 0 when the like was already stored
+    private int insertLike(Post post) throws SQLException {
+        boolean inserted;
         try (Connection conn = new DatabaseConnector().getConnection()) {
-            if (post.isLiked()) {
-                String deleteQuery = "DELETE FROM `LIKE` WHERE username = ? AND imagePath = ?";
-                try (PreparedStatement stmt = conn.prepareStatement(deleteQuery)) {
-                    stmt.setString(1, currentUser.getUsername());
-                    stmt.setString(2, post.getImagePath());
-                    stmt.executeUpdate();
-                }
-                post.setLikes(post.getLikes() - 1);
-                post.setLiked(false);
-                likeButton.setText("🤍");
-            } else {
-                String insertQuery = "INSERT INTO `LIKE` (username, imagePath) VALUES (?, ?)";
-                try (PreparedStatement stmt = conn.prepareStatement(insertQuery)) {
-                    stmt.setString(1, currentUser.getUsername());
-                    stmt.setString(2, post.getImagePath());
-                    stmt.executeUpdate();
-                }
-                post.setLikes(post.getLikes() + 1);
-                post.setLiked(true);
-                likeButton.setText("❤️");
+            conn.setAutoCommit(false);
+            String insertQuery = "INSERT IGNORE INTO `LIKE` (username, imagePath) VALUES (?, ?)";
+            try (PreparedStatement stmt = conn.prepareStatement(insertQuery)) {
+                stmt.setString(1, currentUser.getUsername());
+                stmt.setString(2, post.getImagePath());
+                inserted = stmt.executeUpdate() > 0;
+            }
+            if (inserted) {
+                PictureStats.adjustLikes(conn, post.getImagePath(), 1);
+            }
+            conn.commit();
+        }
+        if (!inserted) {
+            return 0;
+        }
+        TrendingEngine.recordLike(post.getImagePath(), 1);
+        createNotification(post.getUsername(), "like", post.getImagePath());
+        return 1;
+    }
 
-                createNotification(post.getUsername(), "like", post.getImagePath());
+    // Returns the change in like count: -1, or 0 when there was no like to remove
+    private int deleteLike(Post post) throws SQLException {
+        boolean removed;
+        try (Connection conn = new DatabaseConnector().getConnection()) {
+            conn.setAutoCommit(false);
+            String deleteQuery = "DELETE FROM `LIKE` WHERE username = ? AND imagePath = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(deleteQuery)) {
+                stmt.setString(1, currentUser.getUsername());
+                stmt.setString(2, post.getImagePath());
+                removed = stmt.executeUpdate() > 0;
             }
-            likesLabel.setText("Likes: " + post.getLikes());
+            if (removed) {
+                PictureStats.adjustLikes(conn, post.getImagePath(), -1);
+            }
+            conn.commit();
         }
+        if (!removed) {
+            return 0;
+        }
+        TrendingEngine.recordLike(post.getImagePath(), -1);
+        return -1;
     }
 
-    private void createNotification(String username, String sourceType, String sourceId) throws SQLException {
+    private void createNotification(String username, String sourceType, String sourceId) {
         String text = "";
         switch (sourceType) {
             case "like":
@@ -275,16 +408,7 @@ public class QuakstagramHomeUI extends JFrame {
                 break;
         }
 
-        try (Connection conn = new DatabaseConnector().getConnection()) {
-            String query = "INSERT INTO NOTIFICATION (username, text, sourceType, sourceId) VALUES (?, ?, ?, ?)";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, username);
-                stmt.setString(2, text);
-                stmt.setString(3, sourceType);
-                stmt.setString(4, sourceId);
-                stmt.executeUpdate();
-            }
-        }
+        NotificationWriter.enqueue(new NotificationEvent(username, currentUser.getUsername(), sourceType, sourceId, text));
     }
 
     private void displayPostDetails(Post post) {
@@ -298,16 +422,7 @@ public class QuakstagramHomeUI extends JFrame {
 
         JLabel fullSizeImageLabel = new JLabel();
         fullSizeImageLabel.setHorizontalAlignment(JLabel.CENTER);
-        try {
-            BufferedImage originalImage = ImageIO.read(new File(post.getImagePath()));
-            BufferedImage croppedImage = originalImage.getSubimage(
-                    0, 0,
-                    Math.min(originalImage.getWidth(), WIDTH-20),
-                    Math.min(originalImage.getHeight(), HEIGHT-40));
-            fullSizeImageLabel.setIcon(new ImageIcon(croppedImage));
-        } catch (IOException ex) {
-            fullSizeImageLabel.setText("Image not found");
-        }
+        AsyncImageLoader.load(fullSizeImageLabel, post.getImagePath(), Thumbnails.Variant.DETAIL);
 
         JPanel infoPanel = new JPanel();
         infoPanel.setLayout(new BoxLayout(infoPanel, BoxLayout.Y_AXIS));
@@ -319,14 +434,11 @@ public class QuakstagramHomeUI extends JFrame {
         likeButton.setBackground(LIKE_BUTTON_COLOR);
         likeButton.setOpaque(true);
         likeButton.setBorderPainted(false);
-        likeButton.addActionListener(e -> {
-            try {
-                handleLikeAction(post, likesLabel, likeButton);
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(this, "Error updating like: " + ex.getMessage(),
-                        "Database Error", JOptionPane.ERROR_MESSAGE);
-            }
-        });
+        likeButton.addActionListener(e -> handleLikeAction(post, () -> {
+            likesLabel.setText("Likes: " + post.getLikes());
+            likeButton.setText(post.isLiked() ? "❤️" : "🤍");
+            feedList.repaint();
+        }));
         infoPanel.add(likeButton);
 
         JButton backButton = new JButton("Back");
@@ -342,87 +454,11 @@ public class QuakstagramHomeUI extends JFrame {
         cardLayout.show(cardPanel, "ImageView");
     }
 
-    private JButton createIconButton(String iconPath, String buttonType) {
-        ImageIcon iconOriginal = new ImageIcon(iconPath);
-        Image iconScaled = iconOriginal.getImage().getScaledInstance(NAV_ICON_SIZE, NAV_ICON_SIZE, Image.SCALE_SMOOTH);
-        JButton button = new JButton(new ImageIcon(iconScaled));
-        button.setBorder(BorderFactory.createEmptyBorder());
-        button.setContentAreaFilled(false);
-
-        switch (buttonType) {
-            case "home":
-                button.addActionListener(e -> openHomeUI(currentUser));
-                break;
-            case "profile":
-                button.addActionListener(e -> openProfileUI(currentUser));
-                break;
-            case "notification":
-                button.addActionListener(e -> notificationsUI(currentUser));
-                break;
-            case "explore":
-                button.addActionListener(e -> exploreUI(currentUser));
-                break;
-            case "add":
-                button.addActionListener(e -> ImageUploadUI(currentUser));
-                break;
-        }
-        return button;
-    }
-
-    private void openProfileUI(User user) {
-        this.dispose();
-        new QuakstagramProfileUI(user).setVisible(true);
-    }
-
-    private void notificationsUI(User user) {
-        this.dispose();
-        new NotificationsUI(user).setVisible(true);
-    }
-
-    private void ImageUploadUI(User user) {
-        this.dispose();
-        new ImageUploadUI(user).setVisible(true);
-    }
-
-    private void openHomeUI(User user) {
-        this.dispose();
-        new QuakstagramHomeUI(user).setVisible(true);
-    }
-
-    private void exploreUI(User user) {
-        this.dispose();
-        new ExploreUI(user).setVisible(true);
-    }
-
-    private static class Post {
-        private final String username;
-        private final String caption;
-        private int likes;
-        private final String imagePath;
-        private boolean isLiked;
-
-        public Post(String username, String caption, int likes, String imagePath, boolean isLiked) {
-            this.username = username;
-            this.caption = caption;
-            this.likes = likes;
-            this.imagePath = imagePath;
-            this.isLiked = isLiked;
-        }
-
-        public String getUsername() { return username; }
-        public String getCaption() { return caption; }
-        public int getLikes() { return likes; }
-        public String getImagePath() { return imagePath; }
-        public boolean isLiked() { return isLiked; }
-
-        public void setLikes(int likes) { this.likes = likes; }
-        public void setLiked(boolean liked) { isLiked = liked; }
-    }
-
     public static void main(String[] args) {
+        AppStartup.start();
         SwingUtilities.invokeLater(() -> {
             User testUser = new RegularUser("testuser", "Test Bio", "password");
-            new QuakstagramHomeUI(testUser).setVisible(true);
+            new AppShell(new SessionBootstrap.Session(testUser, null, 0), AppShell.Destination.HOME).setVisible(true);
         });
     }
 }
\ No newline at end of file
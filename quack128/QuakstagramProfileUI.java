@@ -1,95 +1,127 @@
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
-public class QuakstagramProfileUI extends JFrame {
+public class QuakstagramProfileUI extends JPanel implements AppShell.Screen {
 
     private static final int WIDTH = 300;
-    private static final int HEIGHT = 500;
     private static final int PROFILE_IMAGE_SIZE = 80;
-    private static final int GRID_IMAGE_SIZE = WIDTH / 3;
-    private static final int NAV_ICON_SIZE = 20;
+    private final CardLayout cardLayout = new CardLayout();
+    private final JPanel cardPanel = new JPanel(cardLayout);
     private JPanel contentPanel;
     private JPanel headerPanel;
-    private JPanel navigationPanel;
+    private VirtualImageGrid imageGrid;
     private User currentUser;
+    // Post count when the grid's source was last set; an upload changes the user's count but not the grid
+    private int gridPostsCount;
+    // Decoded once off the EDT and carried over when refresh() rebuilds the header
+    private final JLabel profileImage = new JLabel();
 
     public QuakstagramProfileUI(User user) {
         this.currentUser = user;
-        setTitle("Quakstagram Profile");
-        setSize(WIDTH, HEIGHT);
-        setMinimumSize(new Dimension(WIDTH, HEIGHT));
-        setDefaultCloseOperation(EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
 
-        try {
-            loadUserData();
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading user data: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
-        }
-
-        contentPanel = new JPanel();
+        contentPanel = new JPanel(new BorderLayout());
+        profileImage.setPreferredSize(new Dimension(PROFILE_IMAGE_SIZE + 20, PROFILE_IMAGE_SIZE + 20));
+        profileImage.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        loadProfileImage();
+        // Starts from the counts the session already holds; refresh() re-reads the summary off the EDT
         headerPanel = createHeaderPanel();
-        navigationPanel = createNavigationPanel();
 
         initializeUI();
+        refresh(false);
     }
 
-    private void loadUserData() throws SQLException {
-        try (Connection conn = new DatabaseConnector().getConnection()) {
-            String userQuery = "SELECT bio FROM USER WHERE username = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(userQuery)) {
-                stmt.setString(1, currentUser.getUsername());
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    currentUser.setBio(rs.getString("bio"));
-                }
+    private void loadUserData(UserSummary summary) {
+        currentUser.setBio(summary.getBio());
+        currentUser.setPostsCount(summary.getPostsCount());
+        currentUser.setFollowersCount(summary.getFollowersCount());
+        currentUser.setFollowingCount(summary.getFollowingCount());
+    }
+
+    private void initializeUI() {
+        add(headerPanel, BorderLayout.NORTH);
+        initializeImageGrid();
+        cardPanel.add(contentPanel, "Detail");
+        add(cardPanel, BorderLayout.CENTER);
+        cardLayout.show(cardPanel, "Grid");
+    }
+
+    @Override
+    public String getTitle() {
+        return "Quakstagram Profile";
+    }
+
+    // Re-reads the summary off the EDT; the grid is only reloaded when the post count moved
+    @Override
+    public void onShow() {
+        refresh(false);
+    }
+
+    @Override
+    public void onReselect() {
+        cardLayout.show(cardPanel, "Grid");
+        refresh(true);
+    }
+
+    private void refresh(boolean reloadGrid) {
+        new SwingWorker<UserSummary, Void>() {
+            @Override
+            protected UserSummary doInBackground() throws SQLException {
+                return UserSummaryService.get(currentUser.getUsername());
             }
-            String followersQuery = "SELECT COUNT(*) FROM FOLLOW WHERE followed = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(followersQuery)) {
-                stmt.setString(1, currentUser.getUsername());
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    currentUser.setFollowersCount(rs.getInt(1));
+
+            @Override
+            protected void done() {
+                try {
+                    UserSummary summary = get();
+                    loadUserData(summary);
+                    remove(headerPanel);
+                    headerPanel = createHeaderPanel();
+                    add(headerPanel, BorderLayout.NORTH);
+                    revalidate();
+                    repaint();
+                    if (reloadGrid || summary.getPostsCount() != gridPostsCount) {
+                        gridPostsCount = summary.getPostsCount();
+                        imageGrid.setSource(QuakstagramProfileUI.this::loadPictures);
+                    }
+                } catch (Exception e) {
+                    System.err.println("Error refreshing profile: " + e.getMessage());
                 }
             }
+        }.execute();
+    }
 
-            String followingQuery = "SELECT COUNT(*) FROM FOLLOW WHERE follower = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(followingQuery)) {
-                stmt.setString(1, currentUser.getUsername());
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    currentUser.setFollowingCount(rs.getInt(1));
+    // Only enough of the PNG to cover the avatar is decoded; it is then stretched to a square as before
+    private void loadProfileImage() {
+        Path path = Paths.get("img/storage/profile/" + currentUser.getUsername() + ".png");
+        new SwingWorker<Icon, Void>() {
+            @Override
+            protected Icon doInBackground() throws IOException {
+                BufferedImage image = RegionDecoder.decode(path, PROFILE_IMAGE_SIZE, PROFILE_IMAGE_SIZE,
+                        RegionDecoder.Fit.COVER);
+                if (image == null) {
+                    return null;
                 }
+                return new ImageIcon(image.getScaledInstance(PROFILE_IMAGE_SIZE, PROFILE_IMAGE_SIZE, Image.SCALE_SMOOTH));
             }
 
-            String postsQuery = "SELECT COUNT(*) FROM PICTURE WHERE username = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(postsQuery)) {
-                stmt.setString(1, currentUser.getUsername());
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    currentUser.setPostsCount(rs.getInt(1));
+            @Override
+            protected void done() {
+                try {
+                    profileImage.setIcon(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error loading profile picture: " + e.getMessage());
                 }
             }
-        }
-    }
-
-    private void initializeUI() {
-        getContentPane().removeAll();
-        add(headerPanel, BorderLayout.NORTH);
-        add(navigationPanel, BorderLayout.SOUTH);
-        initializeImageGrid();
-        revalidate();
-        repaint();
+        }.execute();
     }
 
     private JPanel createHeaderPanel() {
@@ -100,11 +132,6 @@ public class QuakstagramProfileUI extends JFrame {
         JPanel topHeaderPanel = new JPanel(new BorderLayout(10, 0));
         topHeaderPanel.setBackground(new Color(249, 249, 249));
 
-        ImageIcon profileIcon = new ImageIcon(new ImageIcon("img/storage/profile/" +
-                currentUser.getUsername() + ".png").getImage()
-                .getScaledInstance(PROFILE_IMAGE_SIZE, PROFILE_IMAGE_SIZE, Image.SCALE_SMOOTH));
-        JLabel profileImage = new JLabel(profileIcon);
-        profileImage.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         topHeaderPanel.add(profileImage, BorderLayout.WEST);
 
         JPanel statsPanel = new JPanel();
@@ -139,76 +166,37 @@ public class QuakstagramProfileUI extends JFrame {
         return headerPanel;
     }
 
-    private JPanel createNavigationPanel() {
-        JPanel navigationPanel = new JPanel();
-        navigationPanel.setBackground(new Color(249, 249, 249));
-        navigationPanel.setLayout(new BoxLayout(navigationPanel, BoxLayout.X_AXIS));
-        navigationPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
-
-        navigationPanel.add(createIconButton("img/icons/home.png", "home"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/search.png", "explore"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/add.png", "add"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/heart.png", "notification"));
-        navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/profile.png", "profile"));
-
-        return navigationPanel;
-    }
-
     private void initializeImageGrid() {
-        contentPanel.removeAll();
-        contentPanel.setLayout(new GridLayout(0, 3, 5, 5));
-
-        try (Connection conn = new DatabaseConnector().getConnection()) {
-            String query = "SELECT imagePath FROM PICTURE WHERE username = ? ORDER BY createdAt DESC";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, currentUser.getUsername());
-                ResultSet rs = stmt.executeQuery();
-
-                while (rs.next()) {
-                    String imagePath = rs.getString("imagePath");
-                    ImageIcon imageIcon = new ImageIcon(new ImageIcon(imagePath).getImage()
-                            .getScaledInstance(GRID_IMAGE_SIZE, GRID_IMAGE_SIZE, Image.SCALE_SMOOTH));
-                    JLabel imageLabel = new JLabel(imageIcon);
-
-                    imageLabel.addMouseListener(new MouseAdapter() {
-                        @Override
-                        public void mouseClicked(MouseEvent e) {
-                            displayImage(imageIcon);
-                        }
-                    });
-                    contentPanel.add(imageLabel);
-                }
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error loading images: " + ex.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        imageGrid = new VirtualImageGrid(this::displayImage);
+        gridPostsCount = currentUser.getPostsCount();
+        imageGrid.setSource(this::loadPictures);
 
-        JScrollPane scrollPane = new JScrollPane(contentPanel);
+        JScrollPane scrollPane = new JScrollPane(imageGrid);
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-        add(scrollPane, BorderLayout.CENTER);
+        AsyncImageLoader.watch(scrollPane);
+        cardPanel.add(scrollPane, "Grid");
+    }
+
+    private VirtualImageGrid.Page loadPictures(FeedQueryEngine.Cursor after, int limit) throws SQLException {
+        return PicturePages.byUser(currentUser.getUsername(), after, limit);
     }
 
-    private void displayImage(ImageIcon imageIcon) {
+    private void displayImage(String imagePath) {
         contentPanel.removeAll();
-        contentPanel.setLayout(new BorderLayout());
 
-        JLabel fullSizeImageLabel = new JLabel(imageIcon);
+        JLabel fullSizeImageLabel = new JLabel();
+        AsyncImageLoader.load(fullSizeImageLabel, imagePath, Thumbnails.Variant.DETAIL);
         fullSizeImageLabel.setHorizontalAlignment(JLabel.CENTER);
         contentPanel.add(fullSizeImageLabel, BorderLayout.CENTER);
 
         JButton backButton = new JButton("Back");
-        backButton.addActionListener(e -> initializeUI());
+        backButton.addActionListener(e -> cardLayout.show(cardPanel, "Grid"));
         contentPanel.add(backButton, BorderLayout.SOUTH);
 
-        revalidate();
-        repaint();
+        contentPanel.revalidate();
+        contentPanel.repaint();
+        cardLayout.show(cardPanel, "Detail");
     }
 
     private JLabel createStatLabel(String number, String text) {
@@ -218,56 +206,4 @@ public class QuakstagramProfileUI extends JFrame {
         label.setForeground(Color.BLACK);
         return label;
     }
-
-    private JButton createIconButton(String iconPath, String buttonType) {
-        ImageIcon iconOriginal = new ImageIcon(iconPath);
-        Image iconScaled = iconOriginal.getImage().getScaledInstance(NAV_ICON_SIZE, NAV_ICON_SIZE, Image.SCALE_SMOOTH);
-        JButton button = new JButton(new ImageIcon(iconScaled));
-        button.setBorder(BorderFactory.createEmptyBorder());
-        button.setContentAreaFilled(false);
-
-        switch (buttonType) {
-            case "home":
-                button.addActionListener(e -> openHomeUI(currentUser));
-                break;
-            case "profile":
-                button.addActionListener(e -> openProfileUI(currentUser));
-                break;
-            case "notification":
-                button.addActionListener(e -> notificationsUI(currentUser));
-                break;
-            case "explore":
-                button.addActionListener(e -> exploreUI(currentUser));
-                break;
-            case "add":
-                button.addActionListener(e -> ImageUploadUI(currentUser));
-                break;
-        }
-        return button;
-    }
-
-    private void ImageUploadUI(User user) {
-        this.dispose();
-        new ImageUploadUI(user).setVisible(true);
-    }
-
-    private void openProfileUI(User user) {
-        this.dispose();
-        new QuakstagramProfileUI(user).setVisible(true);
-    }
-
-    private void notificationsUI(User user) {
-        this.dispose();
-        new NotificationsUI(user).setVisible(true);
-    }
-
-    private void openHomeUI(User user) {
-        this.dispose();
-        new QuakstagramHomeUI(user).setVisible(true);
-    }
-
-    private void exploreUI(User user) {
-        this.dispose();
-        new ExploreUI(user).setVisible(true);
-    }
-}
\ No newline at end of file
+}
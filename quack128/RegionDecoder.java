@@ -0,0 +1,71 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+// Decodes only as much of an image as a target size needs. The header gives the source size, then the
+// reader is asked for just the source region that survives cropping, keeping every n-th pixel so the
+// result is still at least OVERSAMPLE times the target; Thumbnails.downscale does the rest smoothly.
+// A 4000x3000 photo for a 200x150 post decodes to about 500x375 instead of 12 million pixels.
+public class RegionDecoder {
+    // Point subsampling aliases; leaving twice the target for the filtered downscale hides it
+    private static final int OVERSAMPLE = 2;
+
+    public enum Fit {
+        // Only the centred part with the target's aspect ratio, large enough to fill the target
+        CROP,
+        // The whole image, large enough to cover the target in both directions
+        COVER,
+        // The whole image, large enough to fit inside the target
+        CONTAIN
+    }
+
+    private RegionDecoder() {
+    }
+
+    // Returns null when the file is missing or no installed reader understands it, like ImageIO.read
+    public static BufferedImage decode(Path file, int targetWidth, int targetHeight, Fit fit) throws IOException {
+        if (!Files.isReadable(file)) {
+            return null;
+        }
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                double widthScale = (double) targetWidth / sourceWidth;
+                double heightScale = (double) targetHeight / sourceHeight;
+                double scale = fit == Fit.CONTAIN ? Math.min(widthScale, heightScale) : Math.max(widthScale, heightScale);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (fit == Fit.CROP) {
+                    int regionWidth = Math.min(sourceWidth, Math.max(1, (int) Math.round(targetWidth / scale)));
+                    int regionHeight = Math.min(sourceHeight, Math.max(1, (int) Math.round(targetHeight / scale)));
+                    param.setSourceRegion(new Rectangle((sourceWidth - regionWidth) / 2, (sourceHeight - regionHeight) / 2,
+                            regionWidth, regionHeight));
+                }
+                int step = Math.max(1, (int) Math.floor(1.0 / (scale * OVERSAMPLE)));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
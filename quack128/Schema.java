@@ -0,0 +1,167 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Creates the tables and indexes the application adds on top of the base quack schema. Only the DDL
+// runs here; filling newly created tables from existing rows is left to background jobs, so the first
+// getConnection is not held up by full-table scans.
+public class Schema {
+
+    private Schema() {
+    }
+
+    public static void install(Connection conn) throws SQLException {
+        boolean pictureStatsExisted = tableExists(conn, "PICTURE_STATS");
+        execute(conn, "CREATE TABLE IF NOT EXISTS PICTURE_STATS (" +
+                "imagePath VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                "likesCount INT NOT NULL DEFAULT 0, " +
+                "commentsCount INT NOT NULL DEFAULT 0)");
+        createIndexIfMissing(conn, "PICTURE_STATS", "idx_picture_stats_likes", "likesCount");
+        if (!pictureStatsExisted) {
+            // Counters read as zero until the seed lands; adjust() keeps up with changes made meanwhile
+            BackgroundJobs.runOnce("picture-stats-seed", () -> {
+                try (Connection seedConn = new DatabaseConnector().getConnection()) {
+                    PictureStats.reconcile(seedConn);
+                } catch (SQLException e) {
+                    // The periodic reconciliation fills the table in on its next run
+                    System.err.println("Error seeding picture counters: " + e.getMessage());
+                }
+            });
+        }
+
+        boolean timelineExisted = tableExists(conn, "TIMELINE");
+        execute(conn, "CREATE TABLE IF NOT EXISTS TIMELINE (" +
+                "owner VARCHAR(255) NOT NULL, " +
+                "imagePath VARCHAR(255) NOT NULL, " +
+                "createdAt DATETIME NOT NULL, " +
+                "PRIMARY KEY (owner, createdAt, imagePath))");
+        // Must match PICTURE.createdAt; TIMESTAMP values shift with the session time zone
+        if (changeColumnTypeIfDifferent(conn, "TIMELINE", "createdAt", "datetime", "DATETIME NOT NULL")) {
+            execute(conn, "UPDATE TIMELINE t JOIN PICTURE p ON p.imagePath = t.imagePath " +
+                    "SET t.createdAt = p.createdAt WHERE t.createdAt <> p.createdAt");
+        }
+        execute(conn, "CREATE TABLE IF NOT EXISTS TIMELINE_PULL_AUTHOR (" +
+                "username VARCHAR(255) NOT NULL PRIMARY KEY)");
+        if (!timelineExisted) {
+            // Posts published meanwhile are fanned out as usual; the seed's INSERT IGNORE skips them
+            BackgroundJobs.runOnce("timeline-seed", () -> {
+                try (Connection seedConn = new DatabaseConnector().getConnection()) {
+                    TimelineStore.seed(seedConn);
+                } catch (SQLException e) {
+                    System.err.println("Error seeding timelines: " + e.getMessage());
+                }
+            });
+        }
+
+        // Keyset paging of the Explore and profile grids
+        createIndexIfMissing(conn, "PICTURE", "idx_picture_created", "createdAt, imagePath");
+        createIndexIfMissing(conn, "PICTURE", "idx_picture_username_created", "username, createdAt, imagePath");
+
+        // Dimensions of the stored original, recorded by UploadPipeline; null for older pictures
+        addColumnIfMissing(conn, "PICTURE", "width", "INT NULL");
+        addColumnIfMissing(conn, "PICTURE", "height", "INT NULL");
+
+        // Uploaded originals in BlobStore; blobId is the content hash plus extension
+        execute(conn, "CREATE TABLE IF NOT EXISTS PICTURE_BLOB (" +
+                "imagePath VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                "blobId VARCHAR(80) NOT NULL, " +
+                "KEY idx_picture_blob_blob (blobId))");
+
+        createIndexIfMissing(conn, "NOTIFICATION", "idx_notification_username_id", "username, notificationId");
+        // groupId comes from NOTIFICATION_GROUP_SEQUENCE; an update moves the group to a fresh id
+        execute(conn, "CREATE TABLE IF NOT EXISTS NOTIFICATION_GROUP (" +
+                "groupId BIGINT NOT NULL PRIMARY KEY, " +
+                "username VARCHAR(255) NOT NULL, " +
+                "sourceType VARCHAR(50) NOT NULL, " +
+                "sourceId VARCHAR(255) NOT NULL, " +
+                "bucketStart DATETIME NOT NULL, " +
+                "actorCount INT NOT NULL DEFAULT 0, " +
+                "eventCount INT NOT NULL DEFAULT 0, " +
+                "recentActors VARCHAR(255), " +
+                "text TEXT, " +
+                "timestamp DATETIME NOT NULL, " +
+                "UNIQUE KEY uq_notification_group (username, sourceType, sourceId, bucketStart), " +
+                "KEY idx_notification_group_username_id (username, groupId))");
+        // Groups written before events were counted hold at least one event per actor
+        if (addColumnIfMissing(conn, "NOTIFICATION_GROUP", "eventCount", "INT NOT NULL DEFAULT 0")) {
+            execute(conn, "UPDATE NOTIFICATION_GROUP SET eventCount = actorCount");
+        }
+        if (!tableExists(conn, "NOTIFICATION_GROUP_SEQUENCE")) {
+            execute(conn, "CREATE TABLE NOTIFICATION_GROUP_SEQUENCE (lastId BIGINT NOT NULL)");
+            execute(conn, "INSERT INTO NOTIFICATION_GROUP_SEQUENCE (lastId) " +
+                    "SELECT COALESCE(MAX(groupId), 0) FROM NOTIFICATION_GROUP");
+        }
+        // lastReadId refers to NOTIFICATION_GROUP.groupId
+        execute(conn, "CREATE TABLE IF NOT EXISTS NOTIFICATION_READ_MARKER (" +
+                "username VARCHAR(255) NOT NULL PRIMARY KEY, " +
+                "lastReadId BIGINT NOT NULL DEFAULT 0)");
+    }
+
+    static boolean tableExists(Connection conn, String table) throws SQLException {
+        String query = "SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    static void createIndexIfMissing(Connection conn, String table, String index, String columns) throws SQLException {
+        String query = "SELECT 1 FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            stmt.setString(2, index);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        execute(conn, "CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+    }
+
+    // Returns true when the column was added
+    static boolean addColumnIfMissing(Connection conn, String table, String column, String definition) throws SQLException {
+        String query = "SELECT 1 FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            stmt.setString(2, column);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return false;
+                }
+            }
+        }
+        execute(conn, "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        return true;
+    }
+
+    // Returns true when the column was altered
+    static boolean changeColumnTypeIfDifferent(Connection conn, String table, String column, String dataType,
+                                               String definition) throws SQLException {
+        String query = "SELECT DATA_TYPE FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, table);
+            stmt.setString(2, column);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getString(1).equalsIgnoreCase(dataType)) {
+                    return false;
+                }
+            }
+        }
+        execute(conn, "ALTER TABLE " + table + " MODIFY COLUMN " + column + " " + definition);
+        return true;
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Inverted index over picture captions and comments, ranked with BM25. Each picture is one document;
+// "#tag" tokens are indexed both as the hashtag term and as the plain word. Posting lists are
+// delta/varint-encoded (doc gap, term frequency) byte arrays. Frequencies added to a document that is
+// already inside a list wait in a small overlay until the next compaction. The index is saved to
+// INDEX_FILE and on startup only the PICTURE and COMMENT rows added since the save are replayed.
+public class SearchIndex {
+    private static final Path INDEX_FILE = Paths.get(System.getProperty("quack.search.indexFile", "data/search.idx"));
+    private static final int FORMAT_VERSION = 1;
+    private static final long CATCH_UP_MINUTES = Long.getLong("quack.search.catchUpMinutes", 5L);
+    private static final int MAX_PENDING_BEFORE_COMPACT = 10_000;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Pattern TOKEN = Pattern.compile("#?[\\p{L}\\p{N}_]+");
+
+    private static volatile SearchIndex instance;
+
+    private final List<String> paths = new ArrayList<>();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private int[] docLengths = new int[64];
+    private final BitSet captioned = new BitSet();
+    private long totalLength;
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<String, Map<Integer, Integer>> pending = new HashMap<>();
+    private int pendingCount;
+    // PICTURE rows are replayed from this createdAt (deduplicated by path) and COMMENT rows after this id;
+    // comments indexed live above the watermark are remembered so the replay does not count them twice
+    private long lastPictureCreatedAt;
+    private long lastCommentId;
+    private final Set<Long> liveCommentIds = new HashSet<>();
+    private boolean dirty;
+
+    private SearchIndex() {
+    }
+
+    public static SearchIndex get() throws SQLException {
+        SearchIndex index = instance;
+        if (index == null) {
+            synchronized (SearchIndex.class) {
+                index = instance;
+                if (index == null) {
+                    index = readFromDisk();
+                    try (Connection conn = new DatabaseConnector().getConnection()) {
+                        index.catchUp(conn);
+                    }
+                    instance = index;
+                    scheduleMaintenance(index);
+                }
+            }
+        }
+        return index;
+    }
+
+    // Live updates, called after the write has committed. Until the index is first used they are
+    // no-ops: loading replays the committed rows anyway.
+    public static void onPictureAdded(String imagePath, String caption) {
+        SearchIndex index = instance;
+        if (index != null) {
+            index.addCaption(imagePath, caption);
+        }
+    }
+
+    public static void onCommentAdded(long commentId, String imagePath, String text) {
+        SearchIndex index = instance;
+        if (index != null) {
+            synchronized (index) {
+                if (commentId > index.lastCommentId && index.liveCommentIds.add(commentId)) {
+                    index.addText(imagePath, text);
+                }
+            }
+        }
+    }
+
+    private static void scheduleMaintenance(SearchIndex index) {
+        BackgroundJobs.scheduleWithFixedDelay("search-index-catch-up", () -> {
+            try (Connection conn = new DatabaseConnector().getConnection()) {
+                index.catchUp(conn);
+            } catch (SQLException e) {
+                System.err.println("Error updating search index: " + e.getMessage());
+            }
+            index.saveIfDirty();
+        }, CATCH_UP_MINUTES, CATCH_UP_MINUTES, TimeUnit.MINUTES);
+        BackgroundJobs.runOnShutdown(index::saveIfDirty);
+    }
+
+    // A leading '#' searches hashtags only; anything else matches words in captions and comments
+    public synchronized List<String> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>();
+        boolean hashtagsOnly = query.trim().startsWith("#");
+        for (String term : tokenize(query).keySet()) {
+            if (hashtagsOnly == term.startsWith("#")) {
+                terms.add(term);
+            }
+        }
+        if (terms.isEmpty() || paths.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        double averageLength = Math.max(1.0, (double) totalLength / paths.size());
+        Map<Integer, Double> scores = new HashMap<>();
+        for (String term : terms) {
+            Map<Integer, Integer> frequencies = frequencies(term);
+            int documentFrequency = frequencies.size();
+            double idf = Math.log(1 + (paths.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            for (Map.Entry<Integer, Integer> entry : frequencies.entrySet()) {
+                int tf = entry.getValue();
+                double norm = K1 * (1 - B + B * docLengths[entry.getKey()] / averageLength);
+                scores.merge(entry.getKey(), idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+            }
+        }
+
+        PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            best.add(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        String[] ranked = new String[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = paths.get(best.poll().getKey());
+        }
+        return new ArrayList<>(Arrays.asList(ranked));
+    }
+
+    private Map<Integer, Integer> frequencies(String term) {
+        Map<Integer, Integer> frequencies = new HashMap<>();
+        PostingList list = postings.get(term);
+        if (list != null) {
+            list.decodeInto(frequencies);
+        }
+        Map<Integer, Integer> overlay = pending.get(term);
+        if (overlay != null) {
+            overlay.forEach((doc, tf) -> frequencies.merge(doc, tf, Integer::sum));
+        }
+        return frequencies;
+    }
+
+    private synchronized void addCaption(String imagePath, String caption) {
+        int doc = docId(imagePath);
+        if (!captioned.get(doc)) {
+            captioned.set(doc);
+            addText(imagePath, caption);
+        }
+    }
+
+    private synchronized void addText(String imagePath, String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        int doc = docId(imagePath);
+        for (Map.Entry<String, Integer> entry : tokenize(text).entrySet()) {
+            PostingList list = postings.computeIfAbsent(entry.getKey(), term -> new PostingList());
+            if (doc > list.lastDoc) {
+                list.append(doc, entry.getValue());
+            } else {
+                pending.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).merge(doc, entry.getValue(), Integer::sum);
+                pendingCount++;
+            }
+            docLengths[doc] += entry.getValue();
+            totalLength += entry.getValue();
+        }
+        dirty = true;
+        if (pendingCount > MAX_PENDING_BEFORE_COMPACT) {
+            compact();
+        }
+    }
+
+    private int docId(String imagePath) {
+        Integer id = docIds.get(imagePath);
+        if (id == null) {
+            id = paths.size();
+            paths.add(imagePath);
+            docIds.put(imagePath, id);
+            if (id == docLengths.length) {
+                docLengths = Arrays.copyOf(docLengths, id * 2);
+            }
+        }
+        return id;
+    }
+
+    // Re-encodes every list that has overlay entries
+    private void compact() {
+        for (Map.Entry<String, Map<Integer, Integer>> entry : pending.entrySet()) {
+            TreeMap<Integer, Integer> merged = new TreeMap<>(frequencies(entry.getKey()));
+            PostingList list = new PostingList();
+            merged.forEach(list::append);
+            postings.put(entry.getKey(), list);
+        }
+        pending.clear();
+        pendingCount = 0;
+    }
+
+    private static Map<String, Integer> tokenize(String text) {
+        Map<String, Integer> terms = new HashMap<>();
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            String token = matcher.group();
+            if (token.startsWith("#")) {
+                terms.merge(token, 1, Integer::sum);
+                token = token.substring(1);
+            }
+            terms.merge(token, 1, Integer::sum);
+        }
+        return terms;
+    }
+
+    private void catchUp(Connection conn) throws SQLException {
+        String pictureQuery = "SELECT imagePath, caption, createdAt FROM PICTURE WHERE createdAt >= ? ORDER BY createdAt";
+        try (PreparedStatement stmt = conn.prepareStatement(pictureQuery)) {
+            stmt.setTimestamp(1, new Timestamp(lastPictureCreatedAt));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    addCaption(rs.getString("imagePath"), rs.getString("caption"));
+                    synchronized (this) {
+                        lastPictureCreatedAt = Math.max(lastPictureCreatedAt, rs.getTimestamp("createdAt").getTime());
+                    }
+                }
+            }
+        }
+
+        String commentQuery = "SELECT commentId, imagePath, text FROM COMMENT WHERE commentId > ? ORDER BY commentId";
+        try (PreparedStatement stmt = conn.prepareStatement(commentQuery)) {
+            stmt.setLong(1, lastCommentId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long commentId = rs.getLong("commentId");
+                    synchronized (this) {
+                        if (!liveCommentIds.remove(commentId)) {
+                            addText(rs.getString("imagePath"), rs.getString("text"));
+                        }
+                        lastCommentId = Math.max(lastCommentId, commentId);
+                    }
+                }
+            }
+        }
+        synchronized (this) {
+            liveCommentIds.removeIf(id -> id <= lastCommentId);
+        }
+    }
+
+    private void saveIfDirty() {
+        byte[] bytes;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            compact();
+            try {
+                bytes = serialize();
+            } catch (IOException e) {
+                System.err.println("Error serializing search index: " + e.getMessage());
+                return;
+            }
+            dirty = false;
+        }
+        try {
+            Files.createDirectories(INDEX_FILE.toAbsolutePath().getParent());
+            Path temp = INDEX_FILE.resolveSibling(INDEX_FILE.getFileName() + ".tmp");
+            Files.write(temp, bytes);
+            Files.move(temp, INDEX_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error saving search index: " + e.getMessage());
+            synchronized (this) {
+                dirty = true;
+            }
+        }
+    }
+
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(lastPictureCreatedAt);
+            out.writeLong(lastCommentId);
+            out.writeInt(liveCommentIds.size());
+            for (long commentId : liveCommentIds) {
+                out.writeLong(commentId);
+            }
+            out.writeInt(paths.size());
+            for (int doc = 0; doc < paths.size(); doc++) {
+                out.writeUTF(paths.get(doc));
+                out.writeInt(docLengths[doc]);
+                out.writeBoolean(captioned.get(doc));
+            }
+            out.writeInt(postings.size());
+            for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                PostingList list = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(list.lastDoc);
+                out.writeInt(list.size);
+                out.write(list.data, 0, list.size);
+            }
+        }
+        return buffer.toByteArray();
+    }
+
+    // Falls back to an empty index (rebuilt by the first catch-up) if the file is missing or unreadable
+    private static SearchIndex readFromDisk() {
+        SearchIndex index = new SearchIndex();
+        if (!Files.exists(INDEX_FILE)) {
+            index.dirty = true;
+            return index;
+        }
+        try (InputStream file = Files.newInputStream(INDEX_FILE);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("unsupported format version");
+            }
+            index.lastPictureCreatedAt = in.readLong();
+            index.lastCommentId = in.readLong();
+            for (int i = in.readInt(); i > 0; i--) {
+                index.liveCommentIds.add(in.readLong());
+            }
+            int docCount = in.readInt();
+            for (int doc = 0; doc < docCount; doc++) {
+                index.docId(in.readUTF());
+                index.docLengths[doc] = in.readInt();
+                index.totalLength += index.docLengths[doc];
+                if (in.readBoolean()) {
+                    index.captioned.set(doc);
+                }
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String term = in.readUTF();
+                PostingList list = new PostingList();
+                list.lastDoc = in.readInt();
+                list.size = in.readInt();
+                list.data = new byte[Math.max(list.size, 16)];
+                in.readFully(list.data, 0, list.size);
+                index.postings.put(term, list);
+            }
+            return index;
+        } catch (IOException e) {
+            System.err.println("Rebuilding search index, could not read " + INDEX_FILE + ": " + e.getMessage());
+            SearchIndex empty = new SearchIndex();
+            empty.dirty = true;
+            return empty;
+        }
+    }
+
+    private static class PostingList {
+        private byte[] data = new byte[16];
+        private int size;
+        private int lastDoc = -1;
+
+        // Documents must be appended in increasing order
+        void append(int doc, int tf) {
+            writeVarint(doc - lastDoc);
+            writeVarint(tf);
+            lastDoc = doc;
+        }
+
+        void decodeInto(Map<Integer, Integer> frequencies) {
+            int position = 0;
+            int doc = -1;
+            while (position < size) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                int tf = 0;
+                shift = 0;
+                do {
+                    b = data[position++];
+                    tf |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                doc += gap;
+                frequencies.merge(doc, tf, Integer::sum);
+            }
+        }
+
+        private void writeVarint(int value) {
+            if (size + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+}
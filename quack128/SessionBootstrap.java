@@ -0,0 +1,125 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Signs a user in and loads what the first screens need. Only the credential check, made through the
+// PasswordManager the sign-in screen holds, decides whether sign-in succeeds; the profile row, pictures,
+// follow counts, the first feed page and the notification inbox are then loaded side by side, and any
+// of them that fails falls back to what the screens load lazily anyway. When the profile loads complete
+// the Session primes UserSummaryService, so the screens start from it instead of querying the same rows
+// again. Must not be called on the EDT.
+public class SessionBootstrap {
+    private static final int THREADS = 5;
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "quack-session-bootstrap-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static final String PROFILE_QUERY = "SELECT bio FROM USER WHERE username = ?";
+
+    private SessionBootstrap() {
+    }
+
+    // Returns null when the credentials do not match
+    public static Session signIn(String username, String password, PasswordManager passwordManager,
+                                 UserFactory userFactory) {
+        if (!passwordManager.verifyCredentials(username, password)) {
+            return null;
+        }
+        User user = userFactory.createUser(username, "", password);
+
+        NotificationInbox inbox = NotificationInbox.forUser(username);
+        CompletableFuture<Boolean> profile = submit("profile", () -> {
+            loadBio(user);
+            return true;
+        }, false);
+        CompletableFuture<Boolean> pictures = submit("pictures", () -> {
+            user.loadPictures();
+            return true;
+        }, false);
+        CompletableFuture<Boolean> counts = submit("follow counts", () -> {
+            user.loadCounts();
+            return true;
+        }, false);
+        // A null page makes the home screen load its own first page
+        CompletableFuture<FeedQueryEngine.Page> feed = submit("feed", () ->
+                new FeedQueryEngine().loadPage(username, null, QuakstagramHomeUI.FIRST_PAGE_SIZE), null);
+        CompletableFuture<Integer> unread = submit("unread count", inbox::countUnread, 0);
+        // Opening the notifications screen then only has to fetch what arrived after this
+        CompletableFuture<Boolean> notifications = submit("notifications", () -> {
+            inbox.refresh();
+            return true;
+        }, false);
+
+        CompletableFuture.allOf(profile, pictures, counts, feed, unread, notifications).join();
+
+        // A partial summary would hide the real counts until the next invalidation
+        if (profile.join() && pictures.join() && counts.join()) {
+            UserSummaryService.prime(new UserSummary(username, user.getBio(), user.getPostsCount(),
+                    user.getFollowersCount(), user.getFollowingCount()));
+        }
+        return new Session(user, feed.join(), unread.join());
+    }
+
+    private static void loadBio(User user) throws SQLException {
+        try (Connection conn = new DatabaseConnector().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(PROFILE_QUERY)) {
+            stmt.setString(1, user.getUsername());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    user.setBio(rs.getString("bio"));
+                }
+            }
+        }
+    }
+
+    // Completes with fallback instead of failing, so one slow or broken load never blocks sign-in
+    private static <T> CompletableFuture<T> submit(String what, SqlTask<T> task, T fallback) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Error loading " + what + " at sign-in: " + e);
+                return fallback;
+            }
+        }, EXECUTOR);
+    }
+
+    private interface SqlTask<T> {
+        T call() throws SQLException;
+    }
+
+    public static class Session {
+        private final User user;
+        private FeedQueryEngine.Page firstFeedPage;
+        private final int unreadCount;
+
+        public Session(User user, FeedQueryEngine.Page firstFeedPage, int unreadCount) {
+            this.user = user;
+            this.firstFeedPage = firstFeedPage;
+            this.unreadCount = unreadCount;
+        }
+
+        public User getUser() { return user; }
+        public int getUnreadCount() { return unreadCount; }
+
+        // Hands the preloaded page out once; a feed built later loads a current one itself
+        public FeedQueryEngine.Page takeFirstFeedPage() {
+            FeedQueryEngine.Page page = firstFeedPage;
+            firstFeedPage = null;
+            return page;
+        }
+    }
+}
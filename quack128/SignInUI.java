@@ -4,8 +4,8 @@ import java.awt.event.ActionEvent;
 import java.io.*;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.concurrent.ExecutionException;
 
 public class SignInUI extends JFrame {
     private static final int WIDTH = 300;
@@ -16,7 +16,6 @@ public class SignInUI extends JFrame {
     private JTextField txtPassword;
     private JButton btnSignIn, btnRegisterNow;
     private JLabel lblPhoto;
-    private User newUser;
     private PasswordManager passwordManager;
     private UserFactory regularUserFactory = new RegularUserFactory();
 
@@ -77,35 +76,38 @@ public class SignInUI extends JFrame {
         add(buttonPanel, BorderLayout.SOUTH);
     }
 
+    // Signing in runs off the EDT; SessionBootstrap also preloads what the first screens show
     private void onSignInClicked(ActionEvent event) {
         String username = txtUsername.getText().trim();
         String password = txtPassword.getText().trim();
 
-        if (passwordManager.verifyCredentials(username, password)) {
-            try {
-                try (Connection conn = new DatabaseConnector().getConnection()) {
-                    String query = "SELECT bio FROM USER WHERE username = ?";
-                    try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                        stmt.setString(1, username);
-                        ResultSet rs = stmt.executeQuery();
-                        if (rs.next()) {
-                            String bio = rs.getString("bio");
-                            newUser = regularUserFactory.createUser(username, bio, password);
-                            newUser.loadPictures();
-                            newUser.loadCounts();
-                        }
-                    }
-                }
+        btnSignIn.setEnabled(false);
+        new SwingWorker<SessionBootstrap.Session, Void>() {
+            @Override
+            protected SessionBootstrap.Session doInBackground() {
+                return SessionBootstrap.signIn(username, password, passwordManager, regularUserFactory);
+            }
 
+            @Override
+            protected void done() {
+                btnSignIn.setEnabled(true);
+                SessionBootstrap.Session session;
+                try {
+                    session = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(SignInUI.this, "Error signing in: " + cause.getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (session == null) {
+                    JOptionPane.showMessageDialog(SignInUI.this, "Invalid credentials", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
                 dispose();
-                SwingUtilities.invokeLater(() -> new QuakstagramProfileUI(newUser).setVisible(true));
-            } catch (SQLException e) {
-                JOptionPane.showMessageDialog(this, "Database error: " + e.getMessage(),
-                        "Error", JOptionPane.ERROR_MESSAGE);
+                new AppShell(session, AppShell.Destination.PROFILE).setVisible(true);
             }
-        } else {
-            JOptionPane.showMessageDialog(this, "Invalid credentials", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        }.execute();
     }
 
     private void onRegisterNowClicked(ActionEvent event) {
@@ -139,6 +141,7 @@ public class SignInUI extends JFrame {
     }
 
     public static void main(String[] args) {
+        AppStartup.start();
         SwingUtilities.invokeLater(() -> new SignInUI().setVisible(true));
     }
 }
@@ -15,6 +15,8 @@ public class SignUpUI extends JFrame {
     private static final int WIDTH = 300;
     private static final int HEIGHT = 500;
     private static final String PROFILE_PHOTO_PATH = "img/storage/profile/";
+    // The profile header shows the photo at 80x80; twice that keeps it sharp
+    private static final int PROFILE_PHOTO_SIZE = 160;
 
     private JTextField txtUsername, txtPassword, txtBio;
     private JLabel lblPhoto;
@@ -106,6 +108,7 @@ public class SignUpUI extends JFrame {
             }
 
             saveUserToDatabase(username, password, bio);
+            UsernameIndex.onSignUp(username);
 
             if (selectedProfilePicture != null) {
                 saveProfilePicture(selectedProfilePicture, username);
@@ -159,7 +162,10 @@ public class SignUpUI extends JFrame {
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
             selectedProfilePicture = fileChooser.getSelectedFile();
             try {
-                BufferedImage image = ImageIO.read(selectedProfilePicture);
+                BufferedImage image = RegionDecoder.decode(selectedProfilePicture.toPath(), 80, 80, RegionDecoder.Fit.CONTAIN);
+                if (image == null) {
+                    throw new IOException("Unsupported image: " + selectedProfilePicture.getName());
+                }
                 ImageIcon icon = new ImageIcon(image.getScaledInstance(80, 80, Image.SCALE_SMOOTH));
                 lblPhoto.setIcon(icon);
             } catch (IOException e) {
@@ -172,7 +178,12 @@ public class SignUpUI extends JFrame {
         try {
             new File(PROFILE_PHOTO_PATH).mkdirs();
 
-            BufferedImage image = ImageIO.read(file);
+            BufferedImage image = RegionDecoder.decode(file.toPath(), PROFILE_PHOTO_SIZE, PROFILE_PHOTO_SIZE,
+                    RegionDecoder.Fit.COVER);
+            if (image == null) {
+                throw new IOException("Unsupported image: " + file.getName());
+            }
+            image = Thumbnails.fitWithin(image, PROFILE_PHOTO_SIZE * 2, true);
             File outputFile = new File(PROFILE_PHOTO_PATH + username + ".png");
             ImageIO.write(image, "png", outputFile);
         } catch (IOException e) {
@@ -220,6 +231,7 @@ public class SignUpUI extends JFrame {
     }
 
     public static void main(String[] args) {
+        AppStartup.start();
         SwingUtilities.invokeLater(() -> {
             SignUpUI signUpFrame = new SignUpUI();
             signUpFrame.setVisible(true);
@@ -0,0 +1,345 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Fixed-size JPEG renditions of uploaded pictures, so screens never decode the multi-MB originals.
+// They are kept in a PackStore under data/thumbs rather than as thousands of small files. Keys are the
+// paths loose thumbnails used to have: img/uploaded/alice_3.jpg has img/uploaded/thumbs/alice_3.grid.jpg,
+// .feed.jpg and .detail.jpg. The original is found through BlobStore.resolve, so pictures sharing a
+// blob share its thumbnails too.
+public class Thumbnails {
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final long BACKFILL_INTERVAL_HOURS = 6;
+    private static final long COMPACTION_INTERVAL_HOURS = 24;
+    private static final Path PACK_DIR = Paths.get(System.getProperty("quack.thumbs.packDir", "data/thumbs"));
+    private static final long SEGMENT_BYTES = Long.getLong("quack.thumbs.segmentBytes", 64L * 1024 * 1024);
+    private static volatile PackStore pack;
+
+    public enum Variant {
+        // Explore and profile tiles, cropped to fill
+        GRID("grid", 100, 100, true),
+        // Home feed post, cropped to fill
+        FEED("feed", 200, 150, true),
+        // Detail views, scaled to fit
+        DETAIL("detail", 280, 460, false);
+
+        private final String suffix;
+        private final int width;
+        private final int height;
+        private final boolean crop;
+
+        Variant(String suffix, int width, int height, boolean crop) {
+            this.suffix = suffix;
+            this.width = width;
+            this.height = height;
+            this.crop = crop;
+        }
+
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+    }
+
+    private Thumbnails() {
+    }
+
+    // The pack only keeps thumbnails, which can always be rendered again from the originals
+    static PackStore pack() throws IOException {
+        if (pack == null) {
+            synchronized (Thumbnails.class) {
+                if (pack == null) {
+                    PackStore opened = PackStore.open(PACK_DIR, SEGMENT_BYTES);
+                    BackgroundJobs.runOnShutdown(() -> {
+                        try {
+                            opened.close();
+                        } catch (IOException e) {
+                            System.err.println("Error closing thumbnail pack: " + e.getMessage());
+                        }
+                    });
+                    pack = opened;
+                }
+            }
+        }
+        return pack;
+    }
+
+    // Where the variant was written as a loose file before the pack existed; also its key in the pack
+    private static Path pathFor(String originalPath, Variant variant) {
+        return pathFor(BlobStore.resolve(originalPath), variant);
+    }
+
+    private static Path pathFor(Path original, Variant variant) {
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot > 0 ? name.substring(0, dot) : name;
+        return original.resolveSibling("thumbs").resolve(baseName + "." + variant.suffix + ".jpg");
+    }
+
+    private static String keyFor(String originalPath, Variant variant) {
+        return keyFor(pathFor(originalPath, variant));
+    }
+
+    private static String keyFor(Path thumbnailPath) {
+        return thumbnailPath.toString().replace('\\', '/');
+    }
+
+    // Decodes the original once, just large enough to cover every variant, and writes them all
+    public static void generate(String originalPath) throws IOException {
+        int width = 0;
+        int height = 0;
+        for (Variant variant : Variant.values()) {
+            width = Math.max(width, variant.width);
+            height = Math.max(height, variant.height);
+        }
+        generate(originalPath, readOriginal(originalPath, width, height, RegionDecoder.Fit.COVER));
+    }
+
+    // For callers that already hold the decoded original, such as the upload pipeline
+    public static void generate(String originalPath, BufferedImage original) throws IOException {
+        for (Variant variant : Variant.values()) {
+            write(render(original, variant), keyFor(originalPath, variant));
+        }
+    }
+
+    // Reads the variant, rendering it from the original first if it does not exist yet
+    public static BufferedImage load(String originalPath, Variant variant) throws IOException {
+        String key = keyFor(originalPath, variant);
+        InputStream packed = pack().get(key);
+        if (packed != null) {
+            BufferedImage image = decode(packed);
+            if (image != null) {
+                return image;
+            }
+        }
+        // Loose thumbnail files from before the pack move into it on first read
+        Path legacy = pathFor(originalPath, variant);
+        if (Files.exists(legacy)) {
+            byte[] bytes = Files.readAllBytes(legacy);
+            BufferedImage image = decode(new ByteArrayInputStream(bytes));
+            if (image != null) {
+                pack().put(key, bytes);
+                return image;
+            }
+        }
+        // Only the part of the original this variant shows is decoded
+        RegionDecoder.Fit fit = variant.crop ? RegionDecoder.Fit.CROP : RegionDecoder.Fit.CONTAIN;
+        BufferedImage rendered = render(readOriginal(originalPath, variant.width, variant.height, fit), variant);
+        try {
+            write(rendered, key);
+        } catch (IOException e) {
+            System.err.println("Error writing thumbnail " + key + ": " + e.getMessage());
+        }
+        return rendered;
+    }
+
+    // Reclaims the space of replaced thumbnails, and of those the backfill pruned, in the pack
+    public static void scheduleCompaction() {
+        BackgroundJobs.scheduleWithFixedDelay("thumbnail-pack-compaction", () -> {
+            try {
+                pack().compact();
+            } catch (IOException e) {
+                System.err.println("Error compacting thumbnail pack: " + e.getMessage());
+            }
+        }, COMPACTION_INTERVAL_HOURS, COMPACTION_INTERVAL_HOURS, TimeUnit.HOURS);
+    }
+
+    // Renders the variants missing for pictures uploaded before thumbnails existed, and deletes the
+    // thumbnails of pictures that no longer have a PICTURE row
+    public static void scheduleBackfill() {
+        BackgroundJobs.scheduleWithFixedDelay("thumbnail-backfill", () -> {
+            // Taken before listing: thumbnails are written after their PICTURE row, so anything in this
+            // snapshot belongs to a picture the listing below can see
+            Set<String> unreferenced;
+            try {
+                unreferenced = pack().keys();
+            } catch (IOException e) {
+                System.err.println("Error opening thumbnail pack: " + e.getMessage());
+                return;
+            }
+            List<String> imagePaths = new ArrayList<>();
+            // Resolved in the same query, so a failed BlobStore lookup can never make live thumbnails look orphaned
+            String query = "SELECT p.imagePath, b.blobId FROM PICTURE p LEFT JOIN PICTURE_BLOB b ON b.imagePath = p.imagePath";
+            try (Connection conn = new DatabaseConnector().getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(query);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String imagePath = rs.getString("imagePath");
+                    String blobId = rs.getString("blobId");
+                    imagePaths.add(imagePath);
+                    Path original = blobId != null ? BlobStore.pathOf(blobId) : Paths.get(imagePath);
+                    for (Variant variant : Variant.values()) {
+                        unreferenced.remove(keyFor(pathFor(original, variant)));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error listing pictures for thumbnail backfill: " + e.getMessage());
+                return;
+            }
+            int pruned = 0;
+            for (String key : unreferenced) {
+                try {
+                    pack().delete(key);
+                    pruned++;
+                } catch (IOException e) {
+                    System.err.println("Error deleting thumbnail " + key + ": " + e.getMessage());
+                }
+            }
+            if (pruned > 0) {
+                System.err.println("Deleted " + pruned + " thumbnail(s) of removed pictures");
+            }
+            int generated = 0;
+            for (String imagePath : imagePaths) {
+                try {
+                    if (isMissingAnyVariant(imagePath) && Files.exists(BlobStore.resolve(imagePath))) {
+                        generate(imagePath);
+                        generated++;
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error generating thumbnails for " + imagePath + ": " + e.getMessage());
+                }
+            }
+            if (generated > 0) {
+                System.err.println("Generated thumbnails for " + generated + " picture(s)");
+            }
+        }, 1, TimeUnit.HOURS.toMinutes(BACKFILL_INTERVAL_HOURS), TimeUnit.MINUTES);
+    }
+
+    private static boolean isMissingAnyVariant(String originalPath) throws IOException {
+        for (Variant variant : Variant.values()) {
+            if (!pack().contains(keyFor(originalPath, variant)) && !Files.exists(pathFor(originalPath, variant))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Decoding from memory; ImageIO would otherwise buffer the stream through a temporary file
+    private static BufferedImage decode(InputStream in) throws IOException {
+        return ImageIO.read(new MemoryCacheImageInputStream(in));
+    }
+
+    private static BufferedImage readOriginal(String originalPath, int width, int height, RegionDecoder.Fit fit)
+            throws IOException {
+        BufferedImage original = RegionDecoder.decode(BlobStore.resolve(originalPath), width, height, fit);
+        if (original == null) {
+            throw new IOException("Unsupported or missing image: " + originalPath);
+        }
+        return original;
+    }
+
+    static BufferedImage render(BufferedImage source, Variant variant) {
+        double scale = variant.crop
+                ? Math.max((double) variant.width / source.getWidth(), (double) variant.height / source.getHeight())
+                : Math.min((double) variant.width / source.getWidth(), (double) variant.height / source.getHeight());
+        scale = Math.min(scale, 1.0);
+        int scaledWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int scaledHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage scaled = downscale(source, scaledWidth, scaledHeight);
+        if (!variant.crop) {
+            return scaled;
+        }
+        int width = Math.min(variant.width, scaledWidth);
+        int height = Math.min(variant.height, scaledHeight);
+        return scaled.getSubimage((scaledWidth - width) / 2, (scaledHeight - height) / 2, width, height);
+    }
+
+    // Scales down so neither side exceeds maxDimension; smaller images keep their size. Returns ARGB when
+    // keepAlpha is set and the source has transparency, RGB otherwise.
+    static BufferedImage fitWithin(BufferedImage source, int maxDimension, boolean keepAlpha) {
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        boolean alpha = keepAlpha && source.getColorModel().hasAlpha();
+        if (scale < 1.0) {
+            return downscale(source, width, height, alpha);
+        }
+        return alpha ? source : toRgb(source);
+    }
+
+    private static BufferedImage downscale(BufferedImage source, int targetWidth, int targetHeight) {
+        return downscale(source, targetWidth, targetHeight, false);
+    }
+
+    // Halves repeatedly before the last bilinear step; a single large bilinear step drops most source pixels
+    private static BufferedImage downscale(BufferedImage source, int targetWidth, int targetHeight, boolean alpha) {
+        BufferedImage current = alpha ? source : toRgb(source);
+        int width = current.getWidth();
+        int height = current.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    // JPEG has no alpha channel, so transparent areas are flattened onto white
+    private static BufferedImage toRgb(BufferedImage source) {
+        if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    private static void write(BufferedImage image, String key) throws IOException {
+        pack().put(key, encodeJpeg(image, JPEG_QUALITY));
+    }
+
+    static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, "png", bytes)) {
+            throw new IOException("No PNG writer available");
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,99 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Fan-out-on-write home timelines: new posts are pushed into each follower's TIMELINE rows.
+// Authors with very large audiences are marked in TIMELINE_PULL_AUTHOR instead and merged in at read time.
+public class TimelineStore {
+    static final int CAPACITY = Integer.getInteger("quack.timeline.capacity", 800);
+    private static final int FAN_OUT_LIMIT = Integer.getInteger("quack.timeline.fanOutLimit", 10_000);
+
+    private TimelineStore() {
+    }
+
+    // Call on the connection that inserted the PICTURE row, before committing
+    public static void publish(Connection conn, String author, String imagePath) throws SQLException {
+        if (FollowGraph.get().getFollowerCount(author) > FAN_OUT_LIMIT) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT IGNORE INTO TIMELINE_PULL_AUTHOR (username) VALUES (?)")) {
+                stmt.setString(1, author);
+                stmt.executeUpdate();
+            }
+            return;
+        }
+        String fanOut = "INSERT IGNORE INTO TIMELINE (owner, imagePath, createdAt) " +
+                "SELECT f.follower, p.imagePath, p.createdAt FROM FOLLOW f " +
+                "JOIN PICTURE p ON p.imagePath = ? " +
+                "WHERE f.followed = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(fanOut)) {
+            stmt.setString(1, imagePath);
+            stmt.setString(2, author);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Pulls the newly followed author's posts into the follower's timeline. Up to CAPACITY of them are
+    // copied and the timeline is trimmed straight away, so it stays the newest CAPACITY posts of the full
+    // feed and FeedQueryEngine's FOLLOW fallback below its oldest entry cannot skip any of them.
+    public static void backfill(Connection conn, String follower, String followed) throws SQLException {
+        String query = "INSERT IGNORE INTO TIMELINE (owner, imagePath, createdAt) " +
+                "SELECT ?, p.imagePath, p.createdAt FROM PICTURE p " +
+                "WHERE p.username = ? AND NOT EXISTS (SELECT 1 FROM TIMELINE_PULL_AUTHOR a WHERE a.username = p.username) " +
+                "ORDER BY p.createdAt DESC LIMIT ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, follower);
+            stmt.setString(2, followed);
+            stmt.setInt(3, CAPACITY);
+            stmt.executeUpdate();
+        }
+        trimOwner(conn, follower);
+    }
+
+    private static void trimOwner(Connection conn, String owner) throws SQLException {
+        String query = "DELETE t FROM TIMELINE t JOIN (" +
+                "SELECT imagePath, createdAt, " +
+                "ROW_NUMBER() OVER (ORDER BY createdAt DESC, imagePath DESC) AS position " +
+                "FROM TIMELINE WHERE owner = ?) ranked " +
+                "ON ranked.createdAt = t.createdAt AND ranked.imagePath = t.imagePath " +
+                "WHERE t.owner = ? AND ranked.position > ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, owner);
+            stmt.setString(2, owner);
+            stmt.setInt(3, CAPACITY);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Seeds timelines from the existing FOLLOW and PICTURE rows; the trim job bounds them afterwards
+    static void seed(Connection conn) throws SQLException {
+        String query = "INSERT IGNORE INTO TIMELINE (owner, imagePath, createdAt) " +
+                "SELECT f.follower, p.imagePath, p.createdAt FROM FOLLOW f JOIN PICTURE p ON p.username = f.followed";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.executeUpdate();
+        }
+    }
+
+    static int trim(Connection conn) throws SQLException {
+        String query = "DELETE t FROM TIMELINE t JOIN (" +
+                "SELECT owner, imagePath, createdAt, " +
+                "ROW_NUMBER() OVER (PARTITION BY owner ORDER BY createdAt DESC, imagePath DESC) AS position " +
+                "FROM TIMELINE) ranked " +
+                "ON ranked.owner = t.owner AND ranked.createdAt = t.createdAt AND ranked.imagePath = t.imagePath " +
+                "WHERE ranked.position > ?";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, CAPACITY);
+            return stmt.executeUpdate();
+        }
+    }
+
+    public static void scheduleTrim() {
+        BackgroundJobs.scheduleWithFixedDelay("timeline-trim", () -> {
+            try (Connection conn = new DatabaseConnector().getConnection()) {
+                trim(conn);
+            } catch (SQLException e) {
+                System.err.println("Error trimming timelines: " + e.getMessage());
+            }
+        }, 1, 60, TimeUnit.MINUTES);
+    }
+}
@@ -0,0 +1,192 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+// "Trending now", served from memory. Each picture keeps a ring of hourly engagement counts over the
+// last week; its score is the exponentially decayed sum of the ring. Scores are stored relative to a
+// fixed landmark hour, so they stay comparable without rescoring everything as time passes, and the
+// best TOP_K are kept in a sorted set that is updated on every like and comment.
+public class TrendingEngine {
+    private static final int WINDOW_HOURS = 7 * 24;
+    private static final int TOP_K = Integer.getInteger("quack.trending.topK", 100);
+    private static final double HALF_LIFE_HOURS = Long.getLong("quack.trending.halfLifeHours", 24L);
+    private static final int LIKE_WEIGHT = 1;
+    private static final int COMMENT_WEIGHT = 2;
+    private static final long REBUILD_MINUTES = 60;
+
+    private static volatile TrendingEngine instance;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> top = new TreeSet<>(Comparator.comparingDouble((Entry e) -> -e.score)
+            .thenComparing(e -> e.imagePath));
+    private long landmarkHour = currentHour();
+
+    private TrendingEngine() {
+    }
+
+    public static TrendingEngine get() throws SQLException {
+        TrendingEngine engine = instance;
+        if (engine == null) {
+            synchronized (TrendingEngine.class) {
+                engine = instance;
+                if (engine == null) {
+                    engine = load();
+                    instance = engine;
+                    scheduleRebuild();
+                }
+            }
+        }
+        return engine;
+    }
+
+    // Called after the LIKE/COMMENT change has committed. Before the engine is first loaded there is
+    // nothing to update: the initial load reads the committed counts anyway.
+    public static void recordLike(String imagePath, int delta) {
+        TrendingEngine engine = instance;
+        if (engine != null) {
+            engine.record(imagePath, delta * LIKE_WEIGHT, currentHour());
+        }
+    }
+
+    public static void recordComment(String imagePath, int delta) {
+        TrendingEngine engine = instance;
+        if (engine != null) {
+            engine.record(imagePath, delta * COMMENT_WEIGHT, currentHour());
+        }
+    }
+
+    public synchronized List<String> getTrending(int limit) {
+        List<String> result = new ArrayList<>(Math.min(limit, top.size()));
+        for (Entry entry : top) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(entry.imagePath);
+        }
+        return result;
+    }
+
+    // Replays the last week of LIKE and COMMENT rows into the rings, bucketed by their createdAt hour
+    private static TrendingEngine load() throws SQLException {
+        TrendingEngine engine = new TrendingEngine();
+        long now = currentHour();
+        Timestamp windowStart = new Timestamp(TimeUnit.HOURS.toMillis(now - WINDOW_HOURS + 1));
+        try (Connection conn = new DatabaseConnector().getConnection()) {
+            engine.replay(conn, "`LIKE`", LIKE_WEIGHT, windowStart, now);
+            engine.replay(conn, "COMMENT", COMMENT_WEIGHT, windowStart, now);
+        }
+        return engine;
+    }
+
+    private void replay(Connection conn, String table, int weight, Timestamp windowStart, long now) throws SQLException {
+        String query = "SELECT imagePath, TIMESTAMP(DATE_FORMAT(createdAt, '%Y-%m-%d %H:00:00')) AS hourStart, " +
+                "COUNT(*) AS events FROM " + table + " WHERE createdAt >= ? GROUP BY imagePath, hourStart";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setTimestamp(1, windowStart);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long hour = TimeUnit.MILLISECONDS.toHours(rs.getTimestamp("hourStart").getTime());
+                    record(rs.getString("imagePath"), rs.getInt("events") * weight, Math.min(hour, now));
+                }
+            }
+        }
+    }
+
+    // Moves the landmark to the current hour, drops pictures whose ring has emptied and recomputes the
+    // top set, which also repairs members that an unlike pushed below a non-member
+    private static void scheduleRebuild() {
+        BackgroundJobs.scheduleWithFixedDelay("trending-rebuild", () -> {
+            TrendingEngine engine = instance;
+            if (engine != null) {
+                engine.rebuild(currentHour());
+            }
+        }, REBUILD_MINUTES, REBUILD_MINUTES, TimeUnit.MINUTES);
+    }
+
+    private synchronized void record(String imagePath, int weight, long hour) {
+        Entry entry = entries.computeIfAbsent(imagePath, Entry::new);
+        top.remove(entry);
+        long now = Math.max(currentHour(), entry.lastHour);
+        entry.advanceTo(now);
+        if (now - hour < WINDOW_HOURS) {
+            int slot = (int) Math.floorMod(hour, (long) WINDOW_HOURS);
+            entry.counts[slot] = Math.max(entry.counts[slot] + weight, 0);
+        }
+        entry.score = entry.decayedSum() * Math.pow(2, (now - landmarkHour) / HALF_LIFE_HOURS);
+        offer(entry);
+    }
+
+    private synchronized void rebuild(long now) {
+        landmarkHour = now;
+        top.clear();
+        entries.values().removeIf(entry -> {
+            entry.advanceTo(now);
+            entry.score = entry.decayedSum();
+            return entry.score == 0;
+        });
+        for (Entry entry : entries.values()) {
+            offer(entry);
+        }
+    }
+
+    private void offer(Entry entry) {
+        if (entry.score <= 0) {
+            return;
+        }
+        if (top.size() < TOP_K) {
+            top.add(entry);
+        } else if (top.comparator().compare(entry, top.last()) < 0) {
+            top.pollLast();
+            top.add(entry);
+        }
+    }
+
+    private static long currentHour() {
+        return TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis());
+    }
+
+    private static class Entry {
+        private final String imagePath;
+        private final int[] counts = new int[WINDOW_HOURS];
+        private long lastHour = Long.MIN_VALUE;
+        private double score;
+
+        Entry(String imagePath) {
+            this.imagePath = imagePath;
+        }
+
+        // Clears the slots of hours that have fallen out of the window since the last update
+        void advanceTo(long hour) {
+            if (lastHour == Long.MIN_VALUE || hour - lastHour >= WINDOW_HOURS) {
+                Arrays.fill(counts, 0);
+            } else {
+                for (long h = lastHour + 1; h <= hour; h++) {
+                    counts[(int) Math.floorMod(h, (long) WINDOW_HOURS)] = 0;
+                }
+            }
+            lastHour = Math.max(lastHour, hour);
+        }
+
+        // Decayed to lastHour: an engagement k hours old counts 2^(-k / HALF_LIFE_HOURS)
+        double decayedSum() {
+            double sum = 0;
+            for (int age = 0; age < WINDOW_HOURS; age++) {
+                int count = counts[(int) Math.floorMod(lastHour - age, (long) WINDOW_HOURS)];
+                if (count != 0) {
+                    sum += count * Math.pow(2, -age / HALF_LIFE_HOURS);
+                }
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import javax.swing.SwingUtilities;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Turns a picked file into a stored picture on a worker pool: the original is decoded once and stored in
+// BlobStore, recorded with its size, and the display variants are rendered from the same decoded image.
+// JPEG and PNG files that already fit quack.upload.maxDimension are stored byte for byte. Larger ones are
+// scaled down and re-encoded in their own format, so PNG keeps its transparency. Anything else is
+// transcoded to PNG. Progress is reported on the EDT.
+public class UploadPipeline {
+    private static final int MAX_DIMENSION = Integer.getInteger("quack.upload.maxDimension", 2048);
+    private static final float JPEG_QUALITY = Float.parseFloat(System.getProperty("quack.upload.jpegQuality", "0.9"));
+    private static final int THREADS = Integer.getInteger("quack.upload.threads", 2);
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "quack-upload-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    public interface Progress {
+        // Always called on the EDT
+        void update(int percent, String stage);
+    }
+
+    private UploadPipeline() {
+    }
+
+    // Completes with the new picture's imagePath
+    public static CompletableFuture<String> submit(User user, File source, String caption, Progress progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return run(user, source, caption, progress);
+            } catch (IOException | SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    private static String run(User user, File source, String caption, Progress progress) throws IOException, SQLException {
+        report(progress, 5, "Reading image");
+        // Huge photos are subsampled while decoding rather than held at full size
+        BufferedImage original = RegionDecoder.decode(source.toPath(), MAX_DIMENSION, MAX_DIMENSION, RegionDecoder.Fit.CONTAIN);
+        if (original == null) {
+            throw new IOException("Unsupported image: " + source.getName());
+        }
+
+        String extension = extensionOf(source.getName());
+        boolean jpeg = extension.equals("jpg") || extension.equals("jpeg");
+        boolean fits = original.getWidth() <= MAX_DIMENSION && original.getHeight() <= MAX_DIMENSION;
+        BufferedImage stored;
+        String blobId;
+        if (fits && (jpeg || extension.equals("png"))) {
+            // Decoding at the target size returns the full image when it already fits, so this is the original
+            report(progress, 45, "Storing original");
+            stored = original;
+            try (InputStream in = new FileInputStream(source)) {
+                blobId = BlobStore.put(in, extension);
+            }
+        } else {
+            report(progress, 25, "Resizing");
+            stored = Thumbnails.fitWithin(original, MAX_DIMENSION, !jpeg);
+
+            report(progress, 45, "Compressing");
+            byte[] encoded = jpeg ? Thumbnails.encodeJpeg(stored, JPEG_QUALITY) : Thumbnails.encodePng(stored);
+            blobId = BlobStore.put(new ByteArrayInputStream(encoded), jpeg ? extension : "png");
+        }
+
+        report(progress, 65, "Saving");
+        // Identical uploads share a blob, so the picture gets its own key rather than the blob's
+        String imagePath = user.getUsername() + "/" + UUID.randomUUID();
+        user.addPicture(new Picture(imagePath, caption), blobId, stored.getWidth(), stored.getHeight());
+
+        report(progress, 80, "Creating thumbnails");
+        try {
+            Thumbnails.generate(imagePath, stored);
+        } catch (IOException e) {
+            // Screens render a missing variant on first use, and the backfill job retries
+            System.err.println("Error generating thumbnails: " + e.getMessage());
+        }
+
+        report(progress, 100, "Done");
+        return imagePath;
+    }
+
+    private static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static void report(Progress progress, int percent, String stage) {
+        SwingUtilities.invokeLater(() -> progress.update(percent, stage));
+    }
+}
@@ -24,15 +24,25 @@ public abstract class User {
         this.followersCount = 0;
         this.followingCount = 0;
     }
-    public void addPicture(Picture picture) throws SQLException {
+    // The one write path for new pictures: the PICTURE row with the stored original's size, its BlobStore
+    // link and the timeline fan-out commit together, then the caches and this user's in-memory state follow
+    public void addPicture(Picture picture, String blobId, int width, int height) throws SQLException {
         try (Connection conn = new DatabaseConnector().getConnection()) {
-            String query = "INSERT INTO PICTURE (imagePath, caption, username) VALUES (?, ?, ?)";
+            conn.setAutoCommit(false);
+            String query = "INSERT INTO PICTURE (imagePath, caption, username, width, height) VALUES (?, ?, ?, ?, ?)";
             try (PreparedStatement stmt = conn.prepareStatement(query)) {
                 stmt.setString(1, picture.getImagePath());
                 stmt.setString(2, picture.getCaption());
                 stmt.setString(3, this.username);
+                stmt.setInt(4, width);
+                stmt.setInt(5, height);
                 stmt.executeUpdate();
             }
+            BlobStore.link(conn, picture.getImagePath(), blobId);
+            TimelineStore.publish(conn, this.username, picture.getImagePath());
+            conn.commit();
+            UserSummaryService.invalidate(this.username);
+            SearchIndex.onPictureAdded(picture.getImagePath(), picture.getCaption());
             pictures.add(picture);
             postsCount++;
         }
@@ -58,25 +68,9 @@ public abstract class User {
     }
 
     public void loadCounts() throws SQLException {
-        try (Connection conn = new DatabaseConnector().getConnection()) {
-            String followersQuery = "SELECT COUNT(*) FROM FOLLOW WHERE followed = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(followersQuery)) {
-                stmt.setString(1, this.username);
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    followersCount = rs.getInt(1);
-                }
-            }
-
-            String followingQuery = "SELECT COUNT(*) FROM FOLLOW WHERE follower = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(followingQuery)) {
-                stmt.setString(1, this.username);
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    followingCount = rs.getInt(1);
-                }
-            }
-        }
+        FollowGraph graph = FollowGraph.get();
+        followersCount = graph.getFollowerCount(this.username);
+        followingCount = graph.getFollowingCount(this.username);
     }
 
     public String getUsername() { return username; }
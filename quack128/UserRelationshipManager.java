@@ -1,64 +1,53 @@
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
 
 public class UserRelationshipManager {
 
     public void followUser(String follower, String followed) throws SQLException {
-        if (!isAlreadyFollowing(follower, followed)) {
-            try (Connection conn = new DatabaseConnector().getConnection()) {
-                String query = "INSERT INTO FOLLOW (follower, followed) VALUES (?, ?)";
+        if (isAlreadyFollowing(follower, followed)) {
+            return;
+        }
+        boolean inserted;
+        try (Connection conn = new DatabaseConnector().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // The in-memory graph can lag behind FOLLOW (other clients, a reload in progress), so an
+                // existing row is not an error: it only means this follow has already been stored
+                String query = "INSERT IGNORE INTO FOLLOW (follower, followed) VALUES (?, ?)";
                 try (PreparedStatement stmt = conn.prepareStatement(query)) {
                     stmt.setString(1, follower);
                     stmt.setString(2, followed);
-                    stmt.executeUpdate();
+                    inserted = stmt.executeUpdate() > 0;
                 }
+                if (inserted) {
+                    TimelineStore.backfill(conn, follower, followed);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         }
+        FollowGraph.recordFollow(follower, followed);
+        FollowSuggestionEngine.onFollow(follower, followed);
+        UserSummaryService.invalidate(follower, followed);
+        if (inserted) {
+            NotificationWriter.enqueue(new NotificationEvent(followed, follower, "follow", follower,
+                    follower + " started following you"));
+        }
     }
 
-    private boolean isAlreadyFollowing(String follower, String followed) throws SQLException {
-        try (Connection conn = new DatabaseConnector().getConnection()) {
-            String query = "SELECT 1 FROM FOLLOW WHERE follower = ? AND followed = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, follower);
-                stmt.setString(2, followed);
-                ResultSet rs = stmt.executeQuery();
-                return rs.next();
-            }
-        }
+    public boolean isAlreadyFollowing(String follower, String followed) throws SQLException {
+        return FollowGraph.get().isFollowing(follower, followed);
     }
 
     public List<String> getFollowers(String username) throws SQLException {
-        List<String> followers = new ArrayList<>();
-        try (Connection conn = new DatabaseConnector().getConnection()) {
-            String query = "SELECT follower FROM FOLLOW WHERE followed = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, username);
-                ResultSet rs = stmt.executeQuery();
-                while (rs.next()) {
-                    followers.add(rs.getString("follower"));
-                }
-            }
-        }
-        return followers;
+        return FollowGraph.get().getFollowers(username);
     }
 
     public List<String> getFollowing(String username) throws SQLException {
-        List<String> following = new ArrayList<>();
-        try (Connection conn = new DatabaseConnector().getConnection()) {
-            String query = "SELECT followed FROM FOLLOW WHERE follower = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(query)) {
-                stmt.setString(1, username);
-                ResultSet rs = stmt.executeQuery();
-                while (rs.next()) {
-                    following.add(rs.getString("followed"));
-                }
-            }
-        }
-        return following;
+        return FollowGraph.get().getFollowing(username);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+// Bio and headline counts shown in profile headers and username hover cards
+public class UserSummary {
+    private final String username;
+    private final String bio;
+    private final int postsCount;
+    private final int followersCount;
+    private final int followingCount;
+
+    public UserSummary(String username, String bio, int postsCount, int followersCount, int followingCount) {
+        this.username = username;
+        this.bio = bio;
+        this.postsCount = postsCount;
+        this.followersCount = followersCount;
+        this.followingCount = followingCount;
+    }
+
+    public String getUsername() { return username; }
+    public String getBio() { return bio; }
+    public int getPostsCount() { return postsCount; }
+    public int getFollowersCount() { return followersCount; }
+    public int getFollowingCount() { return followingCount; }
+}
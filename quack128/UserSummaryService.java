@@ -0,0 +1,91 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Loads user summaries in one statement (follow counts come from the in-memory FollowGraph)
+// and keeps them in a bounded, time-limited LRU cache.
+// Writes that change a summary (follows, uploads) must call invalidate for the users involved.
+public class UserSummaryService {
+    private static final int MAX_ENTRIES = Integer.getInteger("quack.summary.cacheSize", 1_000);
+    private static final long TTL_MILLIS = Long.getLong("quack.summary.ttlMillis", 60_000L);
+
+    private static final String SUMMARY_QUERY =
+            "SELECT u.bio, (SELECT COUNT(*) FROM PICTURE p WHERE p.username = u.username) AS posts " +
+            "FROM USER u WHERE u.username = ?";
+
+    private static final Map<String, CachedSummary> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedSummary> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private static long generation;
+
+    private UserSummaryService() {
+    }
+
+    public static UserSummary get(String username) throws SQLException {
+        long loadGeneration;
+        synchronized (CACHE) {
+            CachedSummary cached = CACHE.get(username);
+            if (cached != null && System.currentTimeMillis() < cached.expiresAt) {
+                return cached.summary;
+            }
+            loadGeneration = generation;
+        }
+
+        UserSummary summary = load(username);
+        synchronized (CACHE) {
+            if (loadGeneration == generation) {
+                CACHE.put(username, new CachedSummary(summary, System.currentTimeMillis() + TTL_MILLIS));
+            }
+        }
+        return summary;
+    }
+
+    // For callers that already hold a fresh summary, such as the sign-in bootstrap
+    public static void prime(UserSummary summary) {
+        synchronized (CACHE) {
+            CACHE.put(summary.getUsername(), new CachedSummary(summary, System.currentTimeMillis() + TTL_MILLIS));
+        }
+    }
+
+    public static void invalidate(String... usernames) {
+        synchronized (CACHE) {
+            for (String username : usernames) {
+                CACHE.remove(username);
+            }
+            generation++;
+        }
+    }
+
+    private static UserSummary load(String username) throws SQLException {
+        FollowGraph graph = FollowGraph.get();
+        int followers = graph.getFollowerCount(username);
+        int following = graph.getFollowingCount(username);
+        try (Connection conn = new DatabaseConnector().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SUMMARY_QUERY)) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new UserSummary(username, rs.getString("bio"), rs.getInt("posts"), followers, following);
+                }
+            }
+        }
+        return new UserSummary(username, "", 0, followers, following);
+    }
+
+    private static class CachedSummary {
+        private final UserSummary summary;
+        private final long expiresAt;
+
+        CachedSummary(UserSummary summary, long expiresAt) {
+            this.summary = summary;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+// Prefix index over USER.username for typeahead search. Lower-cased names are kept in one sorted
+// array and a prefix maps to a contiguous range found by binary search; signups since the last
+// build go to a small sorted delta that is merged in once it grows.
+public class UsernameIndex {
+    private static final long RELOAD_MINUTES = Long.getLong("quack.search.userIndexReloadMinutes", 10L);
+    private static final int MIN_DELTA_BEFORE_MERGE = 1_024;
+    // Upper bound on candidates ranked per query, so one-letter prefixes stay cheap on huge tables
+    private static final int MAX_CANDIDATES = 5_000;
+
+    private static volatile UsernameIndex instance;
+
+    private volatile Snapshot snapshot;
+    private final ConcurrentSkipListMap<String, String> delta = new ConcurrentSkipListMap<>();
+
+    private UsernameIndex(Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public static UsernameIndex get() throws SQLException {
+        UsernameIndex index = instance;
+        if (index == null) {
+            synchronized (UsernameIndex.class) {
+                index = instance;
+                if (index == null) {
+                    index = new UsernameIndex(load());
+                    instance = index;
+                    scheduleReload();
+                }
+            }
+        }
+        return index;
+    }
+
+    // Called after a signup commits; a no-op until the index is first used, since the load will see the row
+    public static void onSignUp(String username) {
+        UsernameIndex index = instance;
+        if (index != null) {
+            index.add(username);
+        }
+    }
+
+    // Other clients sign users up too, so the base array is periodically rebuilt from USER
+    private static void scheduleReload() {
+        BackgroundJobs.scheduleWithFixedDelay("username-index-reload", () -> {
+            try {
+                Snapshot fresh = load();
+                UsernameIndex index = instance;
+                synchronized (index) {
+                    index.snapshot = fresh;
+                    index.delta.clear();
+                }
+            } catch (SQLException e) {
+                System.err.println("Error reloading username index: " + e.getMessage());
+            }
+        }, RELOAD_MINUTES, RELOAD_MINUTES, TimeUnit.MINUTES);
+    }
+
+    private static Snapshot load() throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Connection conn = new DatabaseConnector().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT username FROM USER");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                names.add(rs.getString("username"));
+            }
+        }
+        return Snapshot.build(names);
+    }
+
+    public void add(String username) {
+        delta.put(normalize(username), username);
+        if (delta.size() > Math.max(MIN_DELTA_BEFORE_MERGE, snapshot.keys.length / 16)) {
+            merge();
+        }
+    }
+
+    private synchronized void merge() {
+        List<String> names = new ArrayList<>(Arrays.asList(snapshot.names));
+        names.addAll(delta.values());
+        snapshot = Snapshot.build(names);
+        delta.clear();
+    }
+
+    // Usernames starting with the prefix (case-insensitively), exact match first and then by follower count
+    public List<String> search(String prefix, int limit) throws SQLException {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        FollowGraph graph = FollowGraph.get();
+        Comparator<String> ranking = Comparator
+                .comparing((String name) -> !normalize(name).equals(key))
+                .thenComparing(name -> -graph.getFollowerCount(name))
+                .thenComparing(String.CASE_INSENSITIVE_ORDER);
+        PriorityQueue<String> best = new PriorityQueue<>(ranking.reversed());
+
+        Snapshot current = snapshot;
+        int from = current.lowerBound(key);
+        int to = Math.min(current.lowerBound(key + Character.MAX_VALUE), from + MAX_CANDIDATES);
+        for (int i = from; i < to; i++) {
+            offer(best, current.names[i], limit, ranking);
+        }
+        for (String name : delta.subMap(key, key + Character.MAX_VALUE).values()) {
+            offer(best, name, limit, ranking);
+        }
+
+        List<String> result = new ArrayList<>(best);
+        result.sort(ranking);
+        return result;
+    }
+
+    private static void offer(PriorityQueue<String> best, String name, int limit, Comparator<String> ranking) {
+        if (best.contains(name)) {
+            return;
+        }
+        if (best.size() < limit) {
+            best.add(name);
+        } else if (ranking.compare(name, best.peek()) < 0) {
+            best.poll();
+            best.add(name);
+        }
+    }
+
+    private static String normalize(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static class Snapshot {
+        private final String[] keys;
+        private final String[] names;
+
+        private Snapshot(String[] keys, String[] names) {
+            this.keys = keys;
+            this.names = names;
+        }
+
+        static Snapshot build(List<String> usernames) {
+            String[] names = usernames.stream().distinct()
+                    .sorted(Comparator.comparing(UsernameIndex::normalize))
+                    .toArray(String[]::new);
+            String[] keys = new String[names.length];
+            for (int i = 0; i < names.length; i++) {
+                keys[i] = normalize(names[i]);
+            }
+            return new Snapshot(keys, names);
+        }
+
+        // First index whose key is >= the given key
+        int lowerBound(String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
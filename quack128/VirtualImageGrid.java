@@ -0,0 +1,317 @@
+import javax.swing.*;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Square-tile picture grid that only materializes what is on screen. Picture paths arrive in keyset
+// pages from a PageSource as the user scrolls; pages far from the viewport are dropped and fetched
+// again from their remembered cursor if needed. Tiles are a small pool of labels repositioned over
+// the visible rows, with thumbnails loaded through AsyncImageLoader.
+public class VirtualImageGrid extends JComponent implements Scrollable {
+    private static final int COLUMNS = 3;
+    private static final int GAP = 2;
+    private static final int PAGE_SIZE = 60;
+    // Pages kept around the viewport; the rest only keep their size and cursor
+    private static final int RETAINED_PAGES = 8;
+
+    private final int tileSize = Thumbnails.Variant.GRID.getWidth();
+    private final Consumer<String> onTileClicked;
+    private PageSource source;
+    private int generation;
+
+    private final List<FeedQueryEngine.Cursor> pageCursors = new ArrayList<>();
+    private final List<Integer> pageSizes = new ArrayList<>();
+    // pageStarts[i] is the index of page i's first item; the last entry is the total item count
+    private int[] pageStarts = {0};
+    private final Map<Integer, List<String>> pages = new HashMap<>();
+    private final Set<Integer> loadingPages = new HashSet<>();
+    private boolean hasMore;
+
+    private final List<JLabel> tilePool = new ArrayList<>();
+    private final Map<JLabel, String> tilePaths = new HashMap<>();
+    private final ChangeListener viewportListener = e -> layoutTiles();
+    private JViewport viewport;
+
+    public interface PageSource {
+        Page load(FeedQueryEngine.Cursor after, int limit) throws SQLException;
+    }
+
+    public VirtualImageGrid(Consumer<String> onTileClicked) {
+        this.onTileClicked = onTileClicked;
+        setLayout(null);
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                String imagePath = pathAt(e.getPoint());
+                if (imagePath != null) {
+                    onTileClicked.accept(imagePath);
+                }
+            }
+        });
+    }
+
+    // Replaces the grid's contents with the listing of the given source
+    public void setSource(PageSource source) {
+        this.source = source;
+        generation++;
+        pageCursors.clear();
+        pageSizes.clear();
+        pageStarts = new int[]{0};
+        pages.clear();
+        loadingPages.clear();
+        pageCursors.add(null);
+        hasMore = true;
+        for (JLabel tile : tilePool) {
+            AsyncImageLoader.cancel(tile);
+            tile.setVisible(false);
+        }
+        tilePaths.clear();
+        revalidate();
+        scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+        requestPage(0);
+    }
+
+    // For listings that are already in memory, such as search results
+    public void setItems(List<String> imagePaths) {
+        List<String> items = new ArrayList<>(imagePaths);
+        setSource((after, limit) -> new Page(items, null, false));
+    }
+
+    // Registered while the grid is in a viewport; CardLayout swaps and re-parenting call these repeatedly
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (getParent() instanceof JViewport) {
+            viewport = (JViewport) getParent();
+            viewport.addChangeListener(viewportListener);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (viewport != null) {
+            viewport.removeChangeListener(viewportListener);
+            viewport = null;
+        }
+        super.removeNotify();
+    }
+
+    @Override
+    public void doLayout() {
+        layoutTiles();
+    }
+
+    private int itemCount() {
+        return pageStarts[pageStarts.length - 1];
+    }
+
+    private int rowHeight() {
+        return tileSize + GAP;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int rows = (itemCount() + COLUMNS - 1) / COLUMNS + (hasMore ? 1 : 0);
+        return new Dimension(COLUMNS * (tileSize + GAP), rows * rowHeight());
+    }
+
+    private void layoutTiles() {
+        Rectangle visible = getVisibleRect();
+        int cellWidth = getWidth() / COLUMNS;
+        int firstRow = Math.max(0, visible.y / rowHeight());
+        int lastRow = (visible.y + visible.height) / rowHeight();
+        int first = firstRow * COLUMNS;
+        int last = Math.min(itemCount() - 1, (lastRow + 1) * COLUMNS - 1);
+
+        int used = 0;
+        for (int index = first; index <= last; index++) {
+            String imagePath = itemAt(index);
+            if (imagePath == null) {
+                continue;
+            }
+            JLabel tile = tile(used++);
+            int row = index / COLUMNS;
+            int column = index % COLUMNS;
+            tile.setBounds(column * cellWidth + (cellWidth - tileSize) / 2, row * rowHeight(), tileSize, tileSize);
+            if (!imagePath.equals(tilePaths.get(tile))) {
+                tilePaths.put(tile, imagePath);
+                AsyncImageLoader.load(tile, imagePath, Thumbnails.Variant.GRID);
+            }
+            tile.setVisible(true);
+        }
+        for (int i = used; i < tilePool.size(); i++) {
+            JLabel tile = tilePool.get(i);
+            if (tile.isVisible()) {
+                AsyncImageLoader.cancel(tile);
+                tilePaths.remove(tile);
+                tile.setVisible(false);
+            }
+        }
+
+        // Pages are requested a couple of rows ahead of the viewport
+        int lastNeededPage = pageOf(Math.min(Math.max(last, 0) + COLUMNS * 2, Math.max(itemCount() - 1, 0)));
+        for (int page = pageOf(first); page <= lastNeededPage; page++) {
+            requestPage(page);
+        }
+        if (hasMore && (lastRow + 2) * COLUMNS >= itemCount()) {
+            requestPage(pageSizes.size());
+        }
+        evictDistantPages(pageOf(first));
+    }
+
+    private JLabel tile(int slot) {
+        while (tilePool.size() <= slot) {
+            JLabel tile = new JLabel();
+            tile.setHorizontalAlignment(SwingConstants.CENTER);
+            tile.setVisible(false);
+            tilePool.add(tile);
+            add(tile);
+        }
+        return tilePool.get(slot);
+    }
+
+    // Null while the item's page is not loaded
+    private String itemAt(int index) {
+        int page = pageOf(index);
+        List<String> items = pages.get(page);
+        int offset = index - pageStarts[page];
+        return items == null || offset >= items.size() ? null : items.get(offset);
+    }
+
+    private int pageOf(int index) {
+        int low = 0;
+        int high = pageSizes.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (pageStarts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return Math.max(low, 0);
+    }
+
+    private String pathAt(Point point) {
+        int column = Math.min(COLUMNS - 1, point.x / Math.max(1, getWidth() / COLUMNS));
+        int index = (point.y / rowHeight()) * COLUMNS + column;
+        return index < itemCount() ? itemAt(index) : null;
+    }
+
+    private void requestPage(int page) {
+        if (page >= pageCursors.size() || pages.containsKey(page) || loadingPages.contains(page) || source == null) {
+            return;
+        }
+        if (page == pageSizes.size() && !hasMore) {
+            return;
+        }
+        loadingPages.add(page);
+        int requestGeneration = generation;
+        PageSource requestSource = source;
+        FeedQueryEngine.Cursor cursor = pageCursors.get(page);
+        new SwingWorker<Page, Void>() {
+            @Override
+            protected Page doInBackground() throws SQLException {
+                return requestSource.load(cursor, PAGE_SIZE);
+            }
+
+            @Override
+            protected void done() {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loadingPages.remove(page);
+                try {
+                    addPage(page, get());
+                } catch (Exception e) {
+                    // hasMore is left as it was, so the next scroll asks for the page again
+                    System.err.println("Error loading pictures: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void addPage(int page, Page loaded) {
+        pages.put(page, loaded.imagePaths);
+        if (page == pageSizes.size()) {
+            pageSizes.add(loaded.imagePaths.size());
+            hasMore = loaded.hasMore;
+            if (hasMore) {
+                pageCursors.add(loaded.next);
+            }
+        } else {
+            // A page fetched again after eviction; the table may have changed in between
+            pageSizes.set(page, loaded.imagePaths.size());
+        }
+        pageStarts = new int[pageSizes.size() + 1];
+        for (int i = 0; i < pageSizes.size(); i++) {
+            pageStarts[i + 1] = pageStarts[i] + pageSizes.get(i);
+        }
+        revalidate();
+        layoutTiles();
+        repaint();
+    }
+
+    private void evictDistantPages(int currentPage) {
+        pages.keySet().removeIf(page -> Math.abs(page - currentPage) > RETAINED_PAGES);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        Rectangle clip = g.getClipBounds();
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(COLUMNS * (tileSize + GAP), rowHeight() * 4);
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return rowHeight() / 3;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return Math.max(rowHeight(), visibleRect.height - rowHeight());
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    public static class Page {
+        private final List<String> imagePaths;
+        private final FeedQueryEngine.Cursor next;
+        private final boolean hasMore;
+
+        public Page(List<String> imagePaths, FeedQueryEngine.Cursor next, boolean hasMore) {
+            this.imagePaths = imagePaths;
+            this.next = next;
+            this.hasMore = hasMore;
+        }
+
+        public List<String> getImagePaths() { return imagePaths; }
+        public FeedQueryEngine.Cursor getNext() { return next; }
+        public boolean hasMore() { return hasMore; }
+    }
+}
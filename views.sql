@@ -17,27 +17,25 @@ GROUP BY u.username
 HAVING engagementScore > 0
 ORDER BY engagementScore DESC;
 
+-- PICTURE_STATS and NOTIFICATION_GROUP are created by the application (see Schema.install), so
+-- TopLikedPictures, RecentPopularContent and NotificationTrends can only be created once it has
+-- connected to the database at least once
+
 CREATE VIEW TopLikedPictures AS
-SELECT p.imagePath, p.caption, p.username, l.likeCount
+SELECT p.imagePath, p.caption, p.username, s.likesCount AS likeCount
 FROM PICTURE p
-JOIN (
-    SELECT imagePath, COUNT(*) AS likeCount
-    FROM `LIKE`
-    GROUP BY imagePath
-    HAVING COUNT(*) > 2
-) AS l ON p.imagePath = l.imagePath
+JOIN PICTURE_STATS s ON p.imagePath = s.imagePath
+WHERE s.likesCount > 2
 ORDER BY likeCount DESC;
 
 CREATE VIEW RecentPopularContent AS
 SELECT p.imagePath, p.caption, p.username, p.createdAt,
-       COUNT(DISTINCT l.username) AS likeCount,
-       COUNT(DISTINCT c.commentId) AS commentCount
+       s.likesCount AS likeCount,
+       s.commentsCount AS commentCount
 FROM PICTURE p
-LEFT JOIN `LIKE` l ON p.imagePath = l.imagePath
-LEFT JOIN COMMENT c ON p.imagePath = c.imagePath
+JOIN PICTURE_STATS s ON p.imagePath = s.imagePath
 WHERE p.createdAt > DATE_SUB(NOW(), INTERVAL 7 DAY)
-GROUP BY p.imagePath, p.caption, p.username, p.createdAt
-HAVING likeCount > 0 OR commentCount > 0
+  AND (s.likesCount > 0 OR s.commentsCount > 0)
 ORDER BY p.createdAt DESC;
 
 CREATE VIEW DailyRegistrations AS
@@ -47,14 +45,21 @@ GROUP BY DATE(createdAt)
 HAVING COUNT(*) > 1
 ORDER BY registerDate DESC;
 
+-- Notification events per day and source type. The application folds raw NOTIFICATION rows into
+-- NOTIFICATION_GROUP (see NotificationAggregator), whose eventCount keeps how many events each group
+-- stands for; rows not yet folded count once each
 CREATE VIEW NotificationTrends AS
 SELECT DATE(timestamp) AS notificationDate,
        sourceType,
-       COUNT(*) AS notificationCount,
+       SUM(notificationCount) AS notificationCount,
        COUNT(DISTINCT username) AS affectedUsers
-FROM NOTIFICATION
+FROM (
+    SELECT timestamp, sourceType, username, eventCount AS notificationCount FROM NOTIFICATION_GROUP
+    UNION ALL
+    SELECT timestamp, sourceType, username, 1 FROM NOTIFICATION
+) notifications
 GROUP BY DATE(timestamp), sourceType
-HAVING COUNT(*) > 0
+HAVING SUM(notificationCount) > 0
 ORDER BY notificationDate DESC, notificationCount DESC;
 
 CREATE INDEX idx_like_imagePath ON `LIKE`(imagePath);